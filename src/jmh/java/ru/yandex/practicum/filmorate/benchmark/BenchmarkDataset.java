@@ -0,0 +1,151 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.storage.impl.InMemoryFriendshipDao;
+import ru.yandex.practicum.filmorate.storage.impl.InMemoryLikesDao;
+import ru.yandex.practicum.filmorate.storage.index.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.storage.index.FriendGraphIndex;
+import ru.yandex.practicum.filmorate.storage.index.LikeMatrix;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+@State(Scope.Benchmark)
+public class BenchmarkDataset {
+    private static final int SEED = 42;
+    private static final int GENRES_COUNT = 6;
+    private static final int MPA_COUNT = 5;
+    private static final int INSERT_BATCH_SIZE = 1000;
+    private static final int SPARE_USERS = 1000;
+
+    @Param("10000")
+    public int users;
+    @Param("5000")
+    public int films;
+    @Param("20")
+    public int likesPerUser;
+    @Param("30")
+    public int friendsPerUser;
+    @Param("sync")
+    public String likesWriteMode;
+    @Param("sync")
+    public String friendsWriteMode;
+
+    private ConfigurableApplicationContext context;
+
+    @Setup(Level.Trial)
+    public void start() {
+        SpringApplication application = new SpringApplication(FilmorateApplication.class);
+        application.setWebApplicationType(WebApplicationType.NONE);
+        context = application.run(
+                "--spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+                "--filmorate.likes.write-mode=" + likesWriteMode,
+                "--filmorate.friends.write-mode=" + friendsWriteMode,
+                "--logging.level.root=WARN");
+
+        seed(context.getBean(JdbcTemplate.class));
+        context.getBean(FilmPopularityIndex.class).rebuild();
+        context.getBean(FriendGraphIndex.class).rebuild();
+        context.getBean(LikeMatrix.class).rebuild();
+        context.getBeansOfType(InMemoryLikesDao.class).values().forEach(InMemoryLikesDao::load);
+        context.getBeansOfType(InMemoryFriendshipDao.class).values().forEach(InMemoryFriendshipDao::load);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    // Запасные пользователи без лайков и друзей: на них пишущие бенчмарки не меняют исходный набор данных.
+    public int randomSpareUserId() {
+        return users + 1 + ThreadLocalRandom.current().nextInt(SPARE_USERS);
+    }
+
+    public int randomUserId() {
+        return 1 + ThreadLocalRandom.current().nextInt(users);
+    }
+
+    public int randomFilmId() {
+        return 1 + ThreadLocalRandom.current().nextInt(films);
+    }
+
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    private void seed(JdbcTemplate jdbcTemplate) {
+        Random random = new Random(SEED);
+
+        List<Object[]> userRows = new ArrayList<>(users + SPARE_USERS);
+        for (int i = 1; i <= users + SPARE_USERS; i++) {
+            userRows.add(new Object[]{"user" + i + "@mail.ru", "user" + i, "User " + i,
+                    Date.valueOf(LocalDate.of(1970, 1, 1).plusDays(i % 15000))});
+        }
+        batchInsert(jdbcTemplate, "INSERT INTO users (email, login, name, birthday) VALUES (?, ?, ?, ?)", userRows);
+
+        List<Object[]> filmRows = new ArrayList<>(films);
+        List<Object[]> genreRows = new ArrayList<>();
+        for (int i = 1; i <= films; i++) {
+            filmRows.add(new Object[]{"film" + i, "description " + i,
+                    Date.valueOf(LocalDate.of(1950, 1, 1).plusDays(i % 25000)), 60 + i % 120, 1 + i % MPA_COUNT});
+            genreRows.add(new Object[]{i, 1 + i % GENRES_COUNT});
+            genreRows.add(new Object[]{i, 1 + (i + 2) % GENRES_COUNT});
+        }
+        batchInsert(jdbcTemplate, "INSERT INTO films (name, description, release_date, duration, mpa_id) " +
+                "VALUES (?, ?, ?, ?, ?)", filmRows);
+        batchInsert(jdbcTemplate, "INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)", genreRows);
+
+        // Лайки и друзья распределены неравномерно, чтобы у популярных фильмов и пользователей были длинные списки.
+        List<Object[]> likeRows = new ArrayList<>();
+        List<Object[]> friendRows = new ArrayList<>();
+        for (int userId = 1; userId <= users; userId++) {
+            for (int filmId : distinctSkewed(random, films, Math.min(likesPerUser, films))) {
+                likeRows.add(new Object[]{userId, filmId});
+            }
+            for (int friendId : distinctSkewed(random, users, Math.min(friendsPerUser, users - 1))) {
+                if (friendId != userId) {
+                    friendRows.add(new Object[]{userId, friendId, 1});
+                }
+            }
+        }
+        batchInsert(jdbcTemplate, "INSERT INTO likes (user_id, film_id) VALUES (?, ?)", likeRows);
+        jdbcTemplate.update("UPDATE films f SET likes_count = " +
+                "(SELECT COUNT(*) FROM likes l WHERE l.film_id = f.film_id)");
+        batchInsert(jdbcTemplate, "INSERT INTO user_friends (user_id, friend_id, friendship_status_id) " +
+                "VALUES (?, ?, ?)", friendRows);
+        jdbcTemplate.update("UPDATE user_friends uf SET friendship_status_id = 2 WHERE EXISTS " +
+                "(SELECT 1 FROM user_friends r WHERE r.user_id = uf.friend_id AND r.friend_id = uf.user_id)");
+    }
+
+    private static List<Integer> distinctSkewed(Random random, int bound, int count) {
+        List<Integer> result = new ArrayList<>(count);
+        while (result.size() < count) {
+            double skewed = Math.pow(random.nextDouble(), 2);
+            int id = 1 + (int) (skewed * bound);
+            if (!result.contains(id)) {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+
+    private static void batchInsert(JdbcTemplate jdbcTemplate, String sql, List<Object[]> rows) {
+        for (int from = 0; from < rows.size(); from += INSERT_BATCH_SIZE) {
+            jdbcTemplate.batchUpdate(sql, rows.subList(from, Math.min(from + INSERT_BATCH_SIZE, rows.size())));
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.dao.FriendshipDao;
+import ru.yandex.practicum.filmorate.storage.dao.LikesDao;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Чтение ребер через LikesDao и FriendshipDao приложения; хранилище выбирается параметрами likesWriteMode
+// и friendsWriteMode набора данных, запись меряет LikesDaoBenchmark. Выделение памяти на операцию - запуск
+// с -prof gc (gc.alloc.rate.norm). Куча после сборки мусора с загруженным набором дописывается в
+// target/edge-storage-memory.csv: цена хранения ребер в памяти - разница между режимами.
+// -Djmh.args="-p likesWriteMode=sync,in-memory -p friendsWriteMode=sync,in-memory -prof gc EdgeStorageBenchmark"
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class EdgeStorageBenchmark {
+    private static final Path MEMORY_RESULTS = Path.of("target", "edge-storage-memory.csv");
+
+    private BenchmarkDataset dataset;
+    private LikesDao likesDao;
+    private FriendshipDao friendshipDao;
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkDataset dataset) {
+        this.dataset = dataset;
+        likesDao = dataset.getBean(LikesDao.class);
+        friendshipDao = dataset.getBean(FriendshipDao.class);
+        writeMemoryResult(dataset, usedHeap());
+    }
+
+    @Benchmark
+    public int likesCount() {
+        return likesDao.likesCount(dataset.randomFilmId());
+    }
+
+    @Benchmark
+    public List<User> getFriends() {
+        return friendshipDao.getFriends(dataset.randomUserId());
+    }
+
+    private static long usedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    private static void writeMemoryResult(BenchmarkDataset dataset, long heapBytes) {
+        try {
+            Files.createDirectories(MEMORY_RESULTS.getParent());
+            if (Files.notExists(MEMORY_RESULTS)) {
+                Files.writeString(MEMORY_RESULTS, "likesWriteMode,friendsWriteMode,users,films,heapBytes\n",
+                        StandardCharsets.UTF_8);
+            }
+            Files.writeString(MEMORY_RESULTS, String.join(",", dataset.likesWriteMode, dataset.friendsWriteMode,
+                            String.valueOf(dataset.users), String.valueOf(dataset.films),
+                            String.valueOf(heapBytes)) + "\n",
+                    StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
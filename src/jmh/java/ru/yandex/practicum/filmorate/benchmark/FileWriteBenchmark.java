@@ -0,0 +1,95 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.dao.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.dao.LikesDao;
+import ru.yandex.practicum.filmorate.storage.dao.UserDbStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class FileWriteBenchmark {
+    private static final int FILMS = 1000;
+    private static final int USERS = 1000;
+
+    private FilmDbStorage filmStorage;
+    private LikesDao likesDao;
+
+    @Setup(Level.Trial)
+    public void setUp(FileDatabase database) {
+        filmStorage = database.getBean(FilmDbStorage.class);
+        likesDao = database.getBean(LikesDao.class);
+        List<Film> films = new ArrayList<>(FILMS);
+        for (int i = 0; i < FILMS; i++) {
+            films.add(generateFilm());
+        }
+        filmStorage.createAll(films);
+        List<User> users = new ArrayList<>(USERS);
+        for (int i = 1; i <= USERS; i++) {
+            users.add(User.builder()
+                    .email("user" + i + "@mail.ru")
+                    .login("user" + i)
+                    .birthday(LocalDate.of(1990, 1, 1))
+                    .build());
+        }
+        database.getBean(UserDbStorage.class).createAll(users);
+    }
+
+    @Benchmark
+    public Film createFilm() {
+        return filmStorage.create(generateFilm());
+    }
+
+    @Benchmark
+    public Film updateFilm() {
+        Film film = generateFilm();
+        film.setId(1 + ThreadLocalRandom.current().nextInt(FILMS));
+        return filmStorage.update(film);
+    }
+
+    @Benchmark
+    public void toggleLike() {
+        int userId = 1 + ThreadLocalRandom.current().nextInt(USERS);
+        int filmId = 1 + ThreadLocalRandom.current().nextInt(FILMS);
+        likesDao.addLike(userId, filmId);
+        likesDao.deleteLike(userId, filmId);
+    }
+
+    private Film generateFilm() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<Genre> genres = new ArrayList<>();
+        genres.add(Genre.builder().id(1 + random.nextInt(6)).build());
+        genres.add(Genre.builder().id(1 + random.nextInt(6)).build());
+        return Film.builder()
+                .name("film")
+                .description("description")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(90)
+                .mpa(Mpa.builder().id(1 + random.nextInt(5)).build())
+                .genres(genres)
+                .build();
+    }
+}
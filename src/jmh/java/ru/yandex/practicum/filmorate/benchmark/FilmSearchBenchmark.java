@@ -0,0 +1,104 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.enums.FilmSearchField;
+import ru.yandex.practicum.filmorate.storage.index.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.storage.index.FilmSearchIndex;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Индекс строится напрямую, без базы: измеряется только поиск по словарю из миллиона фильмов.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class FilmSearchBenchmark {
+    private static final Set<FilmSearchField> ALL_FIELDS = EnumSet.allOf(FilmSearchField.class);
+    private static final int TITLE_WORDS = 3;
+    private static final int DESCRIPTION_WORDS = 15;
+
+    @Param("1000000")
+    public int films;
+
+    @Param("50000")
+    public int vocabulary;
+
+    private FilmSearchIndex searchIndex;
+    private String[] words;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        words = new String[vocabulary];
+        for (int i = 0; i < vocabulary; i++) {
+            words[i] = randomWord(random);
+        }
+        FilmPopularityIndex popularityIndex = new FilmPopularityIndex(null);
+        searchIndex = new FilmSearchIndex(null, popularityIndex);
+        for (int filmId = 1; filmId <= films; filmId++) {
+            searchIndex.indexFilm(filmId, text(random, TITLE_WORDS), text(random, DESCRIPTION_WORDS));
+            popularityIndex.addFilm(filmId, 2000, List.of());
+        }
+    }
+
+    @Benchmark
+    public List<Integer> searchWord() {
+        return searchIndex.search(word(), ALL_FIELDS, 10);
+    }
+
+    @Benchmark
+    public List<Integer> searchShortPrefix() {
+        return searchIndex.search(word().substring(0, 2), ALL_FIELDS, 10);
+    }
+
+    @Benchmark
+    public List<Integer> searchPrefix() {
+        return searchIndex.search(word().substring(0, 3), ALL_FIELDS, 10);
+    }
+
+    @Benchmark
+    public List<Integer> searchTwoWords() {
+        return searchIndex.search(word() + " " + word().substring(0, 4), ALL_FIELDS, 10);
+    }
+
+    private String word() {
+        return words[ThreadLocalRandom.current().nextInt(words.length)];
+    }
+
+    // Частоты слов неравномерны, как в живом тексте: квадрат равномерной величины смещает выбор к началу словаря.
+    private String text(Random random, int length) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            double skew = random.nextDouble();
+            text.append(words[(int) (skew * skew * words.length)]).append(' ');
+        }
+        return text.toString();
+    }
+
+    private static String randomWord(Random random) {
+        int length = 5 + random.nextInt(6);
+        StringBuilder word = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            word.append((char) ('a' + random.nextInt(26)));
+        }
+        return word.toString();
+    }
+}
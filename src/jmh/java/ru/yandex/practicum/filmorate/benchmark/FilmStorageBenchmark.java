@@ -0,0 +1,57 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.dao.FilmDbStorage;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class FilmStorageBenchmark {
+    private BenchmarkDataset dataset;
+    private FilmDbStorage filmStorage;
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkDataset dataset) {
+        this.dataset = dataset;
+        filmStorage = dataset.getBean(FilmDbStorage.class);
+    }
+
+    @Benchmark
+    public Collection<Film> findTopFilms() {
+        return filmStorage.findTopFilms(10);
+    }
+
+    @Benchmark
+    public List<Film> findAll() {
+        return filmStorage.findAll();
+    }
+
+    @Benchmark
+    public Optional<Film> findFilmById() {
+        return filmStorage.findFilmById(dataset.randomFilmId());
+    }
+
+    @Benchmark
+    public List<Film> findPage() {
+        return filmStorage.findPage(dataset.randomFilmId() - 1, 100);
+    }
+}
@@ -0,0 +1,59 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.storage.dao.FriendshipDao;
+import ru.yandex.practicum.filmorate.storage.dao.LikesDao;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class LikesDaoBenchmark {
+    private BenchmarkDataset dataset;
+    private LikesDao likesDao;
+    private FriendshipDao friendshipDao;
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkDataset dataset) {
+        this.dataset = dataset;
+        likesDao = dataset.getBean(LikesDao.class);
+        friendshipDao = dataset.getBean(FriendshipDao.class);
+    }
+
+    // Лайк сразу снимается, чтобы объем таблицы не менялся от итерации к итерации.
+    @Benchmark
+    public void addAndDeleteLike() {
+        int userId = dataset.randomSpareUserId();
+        int filmId = dataset.randomFilmId();
+        likesDao.addLike(userId, filmId);
+        likesDao.deleteLike(userId, filmId);
+    }
+
+    // Без парного снятия: в режиме write-behind лайк и его отмена схлопнулись бы до записи.
+    @Benchmark
+    public void addLike() {
+        likesDao.addLike(dataset.randomSpareUserId(), dataset.randomFilmId());
+    }
+
+    @Benchmark
+    public void addAndDeleteFriend() {
+        int userId = dataset.randomSpareUserId();
+        int friendId = dataset.randomUserId();
+        friendshipDao.addFriend(userId, friendId);
+        friendshipDao.deleteFriend(userId, friendId);
+    }
+}
@@ -0,0 +1,64 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.dao.FriendshipDao;
+import ru.yandex.practicum.filmorate.storage.dao.UserDbStorage;
+import ru.yandex.practicum.filmorate.storage.index.LikeMatrix;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class UserStorageBenchmark {
+    private BenchmarkDataset dataset;
+    private UserDbStorage userStorage;
+    private FriendshipDao friendshipDao;
+    private LikeMatrix likeMatrix;
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkDataset dataset) {
+        this.dataset = dataset;
+        userStorage = dataset.getBean(UserDbStorage.class);
+        friendshipDao = dataset.getBean(FriendshipDao.class);
+        likeMatrix = dataset.getBean(LikeMatrix.class);
+    }
+
+    @Benchmark
+    public Collection<User> getCommonFriends() {
+        return userStorage.getCommonFriends(dataset.randomUserId(), dataset.randomUserId());
+    }
+
+    @Benchmark
+    public Optional<User> findUserById() {
+        return userStorage.findUserById(dataset.randomUserId());
+    }
+
+    @Benchmark
+    public List<User> getFriends() {
+        return friendshipDao.getFriends(dataset.randomUserId());
+    }
+
+    // Подборка без кэша: сколько стоит пересчет после инвалидации.
+    @Benchmark
+    public int[] computeRecommendations() {
+        return likeMatrix.computeRecommendations(dataset.randomUserId());
+    }
+}
@@ -2,6 +2,8 @@ package ru.yandex.practicum.filmorate.controller;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -11,13 +13,18 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.yandex.practicum.filmorate.exception.FilmNotFoundException;
 import ru.yandex.practicum.filmorate.exception.UserNotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.ImportReport;
+import ru.yandex.practicum.filmorate.service.BatchImport;
 import ru.yandex.practicum.filmorate.service.FilmService;
 
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Collection;
 import java.util.List;
 
@@ -25,58 +32,103 @@ import java.util.List;
 @RequestMapping("/films")
 @Slf4j
 public class FilmController {
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
 
     private final FilmService filmService;
+    private final NdjsonWriter ndjsonWriter;
+    private final JsonRecordReader jsonRecordReader;
 
     @Autowired
-    public FilmController(FilmService filmService) {
+    public FilmController(FilmService filmService, NdjsonWriter ndjsonWriter, JsonRecordReader jsonRecordReader) {
         this.filmService = filmService;
+        this.ndjsonWriter = ndjsonWriter;
+        this.jsonRecordReader = jsonRecordReader;
     }
 
     @GetMapping
-    public List<Film> findAll() {
-        log.info("Получен запрос на получение списка всех фильмов.");
-        return filmService.findAll();
+    public List<Film> findAll(@RequestParam(required = false) Integer after,
+                              @RequestParam(required = false) Integer limit) {
+        if (after == null && limit == null) {
+            log.debug("Получен запрос на получение списка всех фильмов.");
+            return filmService.findAll();
+        }
+        log.debug("Получен запрос на получение страницы фильмов.");
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        if (pageSize <= 0 || pageSize > MAX_PAGE_SIZE) {
+            throw new ValidationException("Размер страницы должен быть от 1 до " + MAX_PAGE_SIZE);
+        }
+        return filmService.findPage(after == null ? 0 : after, pageSize);
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportAll() {
+        log.debug("Получен запрос на выгрузку всех фильмов.");
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(ndjsonWriter.stream(filmService::exportAll));
     }
 
     @GetMapping("/{id}")
     public Film getFilm(@PathVariable int id) {
-        log.info("Получен запрос на получение фильма по id.");
+        log.debug("Получен запрос на получение фильма по id.");
         return filmService.findFilmById(id);
     }
 
+    @GetMapping("/search")
+    public Collection<Film> searchFilms(@RequestParam(required = false) String query,
+                                        @RequestParam(defaultValue = "title,description") String by,
+                                        @RequestParam(defaultValue = "10") int count) {
+        log.debug("Получен запрос на поиск фильмов: {}, поля: {}.", query, by);
+        if (count <= 0) {
+            throw new ValidationException("Введите значение больше 0");
+        }
+        return filmService.searchFilms(query, by, count);
+    }
+
     @GetMapping("/popular")
-    public Collection<Film> findTopFilms(@RequestParam(defaultValue = "10") int count) {
-        log.info("Получен запрос на получение списка топ фильмов.");
+    public Collection<Film> findTopFilms(@RequestParam(defaultValue = "10") int count,
+                                         @RequestParam(required = false) Integer genreId,
+                                         @RequestParam(required = false) Integer year) {
+        log.debug("Получен запрос на получение списка топ фильмов, жанр: {}, год: {}.", genreId, year);
         if (count <= 0) {
             throw new ValidationException("Введите значение больше 0");
         }
-        return filmService.findTopFilms(count);
+        return filmService.findTopFilms(count, genreId, year);
+    }
+
+    @PostMapping(value = "/batch",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ImportReport importAll(InputStream body) throws IOException {
+        log.debug("Получен запрос на пакетную загрузку фильмов.");
+        BatchImport<Film> batchImport = filmService.startImport();
+        jsonRecordReader.read(body, Film.class, batchImport::add, batchImport::reject);
+        return batchImport.finish();
     }
 
     @PostMapping
     public Film create(@Valid @RequestBody Film film) throws ValidationException {
-        log.info("Получен запрос на добавление фильма.");
+        log.debug("Получен запрос на добавление фильма.");
         return filmService.create(film);
     }
 
     @PutMapping("/{id}/like/{userId}")
     public void addLike(@PathVariable int id,
                         @PathVariable int userId) throws FilmNotFoundException, UserNotFoundException {
-        log.info("Получен запрос на добавление лайка к фильму.");
+        log.debug("Получен запрос на добавление лайка к фильму.");
         filmService.addLike(userId, id);
     }
 
     @PutMapping
     public Film update(@Valid @RequestBody Film film) throws ValidationException {
-        log.info("Получен запрос на обновление фильма.");
+        log.debug("Получен запрос на обновление фильма.");
         return filmService.update(film);
     }
 
     @DeleteMapping("/{id}/like/{userId}")
     public void deleteLike(@PathVariable int id,
                            @PathVariable int userId) throws FilmNotFoundException, UserNotFoundException {
-        log.info("Получен запрос на удаление лайка у фильма.");
+        log.debug("Получен запрос на удаление лайка у фильма.");
         filmService.deleteLike(userId, id);
     }
 
@@ -24,13 +24,13 @@ public class GenreController {
 
     @GetMapping()
     public List<Genre> findAll() {
-        log.info("Получен запрос на получение всего genre списка.");
+        log.debug("Получен запрос на получение всего genre списка.");
         return genreService.findAll();
     }
 
     @GetMapping("/{id}")
     public Genre getGenreById(@PathVariable int id) {
-        log.info("Получен запрос на получение genre.");
+        log.debug("Получен запрос на получение genre.");
         return genreService.findGenreById(id);
     }
 }
@@ -0,0 +1,40 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.Consumer;
+
+@Component
+public class JsonRecordReader {
+    private final ObjectMapper objectMapper;
+
+    public JsonRecordReader(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    // Читает как JSON-массив, так и NDJSON: записи разбираются по одной, без загрузки тела целиком.
+    public <T> void read(InputStream in, Class<T> type, Consumer<T> onRecord, Consumer<String> onError)
+            throws IOException {
+        try (MappingIterator<T> records = objectMapper.readerFor(type).readValues(in)) {
+            while (true) {
+                try {
+                    if (!records.hasNextValue()) {
+                        return;
+                    }
+                    onRecord.accept(records.nextValue());
+                } catch (JsonParseException e) {
+                    onError.accept(e.getOriginalMessage());
+                    return;
+                } catch (JsonMappingException e) {
+                    onError.accept(e.getOriginalMessage());
+                }
+            }
+        }
+    }
+}
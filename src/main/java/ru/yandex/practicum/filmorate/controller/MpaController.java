@@ -26,13 +26,13 @@ public class MpaController {
 
     @GetMapping("/{id}")
     public Mpa findMpaById(@PathVariable int id) {
-        log.info("Получен запрос на получение mpa.");
+        log.debug("Получен запрос на получение mpa.");
         return mpaService.findMpaById(id);
     }
 
     @GetMapping()
     public List<Mpa> findAll() {
-        log.info("Получен запрос на получение всего Mpa списка.");
+        log.debug("Получен запрос на получение всего Mpa списка.");
         return mpaService.findAll();
     }
 
@@ -0,0 +1,49 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.reactive.ReactiveFilmStorage;
+
+@Slf4j
+@RestController
+@Profile("reactive")
+@RequestMapping("/reactive/films")
+public class ReactiveFilmController {
+    private final ReactiveFilmStorage filmStorage;
+
+    public ReactiveFilmController(ReactiveFilmStorage filmStorage) {
+        this.filmStorage = filmStorage;
+    }
+
+    // В application/x-ndjson фильмы пишутся по одному по мере чтения, в application/json собираются в массив.
+    @GetMapping(produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public Flux<Film> findAll() {
+        log.debug("Получен запрос на получение списка всех фильмов.");
+        return filmStorage.findAll();
+    }
+
+    @GetMapping("/{id}")
+    public Mono<Film> getFilm(@PathVariable int id) {
+        log.debug("Получен запрос на получение фильма по id.");
+        return filmStorage.findFilmById(id);
+    }
+
+    @GetMapping(value = "/popular", produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public Flux<Film> findTopFilms(@RequestParam(defaultValue = "10") int count) {
+        log.debug("Получен запрос на получение списка топ фильмов.");
+        if (count <= 0) {
+            throw new ValidationException("Введите значение больше 0");
+        }
+        return filmStorage.findTopFilms(count);
+    }
+}
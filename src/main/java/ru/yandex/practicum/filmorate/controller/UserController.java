@@ -2,6 +2,8 @@ package ru.yandex.practicum.filmorate.controller;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -9,12 +11,19 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.ImportReport;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.BatchImport;
 import ru.yandex.practicum.filmorate.service.UserService;
 
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Collection;
 import java.util.List;
 
@@ -22,61 +31,114 @@ import java.util.List;
 @RequestMapping("/users")
 @Slf4j
 public class UserController {
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
     private final UserService userService;
+    private final NdjsonWriter ndjsonWriter;
+    private final JsonRecordReader jsonRecordReader;
 
     @Autowired
-    public UserController(UserService userService) {
+    public UserController(UserService userService, NdjsonWriter ndjsonWriter, JsonRecordReader jsonRecordReader) {
         this.userService = userService;
+        this.ndjsonWriter = ndjsonWriter;
+        this.jsonRecordReader = jsonRecordReader;
     }
 
     @GetMapping
-    public List<User> findAll() {
-        log.info("Получен запрос на получение списка всех пользователей.");
-        return userService.findAll();
+    public List<User> findAll(@RequestParam(required = false) Integer after,
+                              @RequestParam(required = false) Integer limit) {
+        if (after == null && limit == null) {
+            log.debug("Получен запрос на получение списка всех пользователей.");
+            return userService.findAll();
+        }
+        log.debug("Получен запрос на получение страницы пользователей.");
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        if (pageSize <= 0 || pageSize > MAX_PAGE_SIZE) {
+            throw new ValidationException("Размер страницы должен быть от 1 до " + MAX_PAGE_SIZE);
+        }
+        return userService.findPage(after == null ? 0 : after, pageSize);
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportAll() {
+        log.debug("Получен запрос на выгрузку всех пользователей.");
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(ndjsonWriter.stream(userService::exportAll));
     }
 
     @GetMapping("/{id}")
     public User getUser(@PathVariable int id) {
-        log.info("Получен запрос на получение пользователя.");
+        log.debug("Получен запрос на получение пользователя.");
         return userService.getUserById(id);
     }
 
     @GetMapping("/{id}/friends")
-    public Collection<User> getFriendsList(@PathVariable int id) {
-        log.info("Получен запрос на получение списка друзей пользователя.");
-        return userService.getFriendsList(id);
+    public Collection<User> getFriendsList(@PathVariable int id,
+                                           @RequestParam(required = false) String status) {
+        log.debug("Получен запрос на получение списка друзей пользователя.");
+        return userService.getFriendsList(id, status);
+    }
+
+    @GetMapping("/{id}/friends/suggested")
+    public Collection<User> getSuggestedFriends(@PathVariable int id,
+                                                @RequestParam(defaultValue = "10") int count) {
+        log.debug("Получен запрос на получение рекомендаций друзей.");
+        if (count <= 0) {
+            throw new ValidationException("Введите значение больше 0");
+        }
+        return userService.getSuggestedFriends(id, count);
+    }
+
+    @GetMapping("/{id}/recommendations")
+    public Collection<Film> getRecommendations(@PathVariable int id,
+                                               @RequestParam(defaultValue = "10") int count) {
+        log.debug("Получен запрос на получение рекомендаций фильмов.");
+        if (count <= 0) {
+            throw new ValidationException("Введите значение больше 0");
+        }
+        return userService.getRecommendations(id, count);
     }
 
     @GetMapping("{id}/friends/common/{otherId}")
     public Collection<User> getCommonFriends(@PathVariable int id,
                                              @PathVariable int otherId) {
-        log.info("Получен запрос на получение списка всех пользователей.");
+        log.debug("Получен запрос на получение списка всех пользователей.");
         return userService.getCommonFriends(id, otherId);
     }
 
+    @PostMapping(value = "/batch",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ImportReport importAll(InputStream body) throws IOException {
+        log.debug("Получен запрос на пакетную загрузку пользователей.");
+        BatchImport<User> batchImport = userService.startImport();
+        jsonRecordReader.read(body, User.class, batchImport::add, batchImport::reject);
+        return batchImport.finish();
+    }
+
     @PostMapping
     public User create(@Valid @RequestBody User user) throws ValidationException {
-        log.info("Получен запрос на добавление пользователя.");
+        log.debug("Получен запрос на добавление пользователя.");
         return userService.create(user);
     }
 
     @PutMapping
     public User update(@Valid @RequestBody User user) throws ValidationException {
-        log.info("Получен запрос на обновление пользователя.");
+        log.debug("Получен запрос на обновление пользователя.");
         return userService.update(user);
     }
 
     @PutMapping("/{id}/friends/{friendId}")
     public void addFriend(@PathVariable int id,
                           @PathVariable int friendId) {
-        log.info("Получен запрос на добавление в друзья.");
+        log.debug("Получен запрос на добавление в друзья.");
         userService.addFriend(id, friendId);
     }
 
     @DeleteMapping("{id}/friends/{friendId}")
     public void deleteFriend(@PathVariable int id,
                              @PathVariable int friendId) {
-        log.info("Получен запрос на удаление из друзей.");
+        log.debug("Получен запрос на удаление из друзей.");
         userService.deleteFriend(id, friendId);
     }
 }
@@ -0,0 +1,18 @@
+package ru.yandex.practicum.filmorate.enums;
+
+import lombok.Getter;
+
+@Getter
+public enum FilmSearchField {
+    TITLE("title", 3.0),
+    DESCRIPTION("description", 1.0);
+
+    private final String param;
+    // Вес совпадения в поле при ранжировании результатов поиска.
+    private final double weight;
+
+    FilmSearchField(String param, double weight) {
+        this.param = param;
+        this.weight = weight;
+    }
+}
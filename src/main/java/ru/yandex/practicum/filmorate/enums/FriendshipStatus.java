@@ -4,12 +4,17 @@ import lombok.Getter;
 
 @Getter
 public enum FriendshipStatus {
-    PENDING("неподтвержденная"),
-    CONFIRMED("подтвержденная");
+    PENDING(1, "pending", "неподтвержденная"),
+    CONFIRMED(2, "confirmed", "подтвержденная");
 
+    // Значение friendship_status_id в таблице user_friends.
+    private final int id;
+    private final String param;
     private final String title;
 
-    FriendshipStatus(String title) {
+    FriendshipStatus(int id, String param, String title) {
+        this.id = id;
+        this.param = param;
         this.title = title;
     }
 }
@@ -0,0 +1,241 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class SqlMetricsConfiguration {
+    public static final String STATEMENTS_HEADER = "X-Sql-Statements";
+    private static final String STATS_ATTRIBUTE = SqlRequestStats.class.getName();
+
+    @Bean
+    public static BeanPostProcessor sqlTrackingDataSourcePostProcessor(Environment environment) {
+        Duration slowQueryThreshold = Binder.get(environment)
+                .bind("filmorate.sql.slow-query-threshold", Duration.class)
+                .orElse(Duration.ofMillis(200));
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource && !(bean instanceof SqlTrackingDataSource)) {
+                    return new SqlTrackingDataSource((DataSource) bean, slowQueryThreshold);
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public OncePerRequestFilter sqlMetricsFilter(ObjectProvider<MeterRegistry> meterRegistry,
+                                                 @Value("${filmorate.sql.statements-header:true}") boolean addHeader) {
+        return new OncePerRequestFilter() {
+            @Override
+            protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                            FilterChain filterChain) throws ServletException, IOException {
+                SqlRequestStats stats = SqlRequestStats.start();
+                request.setAttribute(STATS_ATTRIBUTE, stats);
+                HttpServletResponse tracked = addHeader ? new StatementsHeaderResponse(response) : response;
+                try {
+                    filterChain.doFilter(request, tracked);
+                } finally {
+                    SqlRequestStats.stop();
+                    if (request.isAsyncStarted()) {
+                        // Потоковый ответ пишется в другом потоке: запросы досчитываются там, метрика - по завершении.
+                        request.getAsyncContext().addListener(new CompletionListener(() ->
+                                record(meterRegistry.getObject(), request, stats)));
+                    } else {
+                        if (addHeader && !response.isCommitted()) {
+                            response.setIntHeader(STATEMENTS_HEADER, stats.getStatements());
+                        }
+                        record(meterRegistry.getObject(), request, stats);
+                    }
+                }
+            }
+        };
+    }
+
+    // StreamingResponseBody выполняется как Callable в потоке асинхронной обработки MVC,
+    // туда же переносится счетчик запроса.
+    @Bean
+    public WebMvcConfigurer sqlStatsAsyncConfigurer() {
+        return new WebMvcConfigurer() {
+            @Override
+            public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+                configurer.registerCallableInterceptors(new CallableProcessingInterceptor() {
+                    @Override
+                    public <T> void preProcess(NativeWebRequest request, Callable<T> task) {
+                        Object stats = request.getAttribute(STATS_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+                        if (stats instanceof SqlRequestStats) {
+                            SqlRequestStats.attach((SqlRequestStats) stats);
+                        }
+                    }
+
+                    @Override
+                    public <T> void postProcess(NativeWebRequest request, Callable<T> task, Object result) {
+                        SqlRequestStats.stop();
+                    }
+                });
+            }
+        };
+    }
+
+    private static void record(MeterRegistry meterRegistry, HttpServletRequest request, SqlRequestStats stats) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern == null ? "UNKNOWN" : pattern.toString();
+        DistributionSummary.builder("filmorate.http.sql.statements")
+                .description("Число SQL-запросов на один HTTP-запрос")
+                .tag("method", request.getMethod())
+                .tag("uri", uri)
+                .register(meterRegistry)
+                .record(stats.getStatements());
+        Timer.builder("filmorate.http.sql.time")
+                .description("Суммарное время выполнения SQL на один HTTP-запрос")
+                .tag("method", request.getMethod())
+                .tag("uri", uri)
+                .register(meterRegistry)
+                .record(stats.getExecutionNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    private static class CompletionListener implements AsyncListener {
+        private final Runnable onComplete;
+
+        CompletionListener(Runnable onComplete) {
+            this.onComplete = onComplete;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            onComplete.run();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+
+    // Заголовок ставится при первой записи тела: после нее ответ уже может уйти клиенту.
+    // Поток ответа MVC может взять заранее, а писать в него позже и в другом потоке, поэтому ждем именно записи.
+    private static class StatementsHeaderResponse extends HttpServletResponseWrapper {
+        private ServletOutputStream outputStream;
+
+        StatementsHeaderResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (outputStream == null) {
+                outputStream = new StatementsHeaderOutputStream(super.getOutputStream(), this::setStatementsHeader);
+            }
+            return outputStream;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            setStatementsHeader();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            setStatementsHeader();
+            super.flushBuffer();
+        }
+
+        private void setStatementsHeader() {
+            SqlRequestStats stats = SqlRequestStats.current();
+            if (stats != null && !isCommitted()) {
+                setIntHeader(STATEMENTS_HEADER, stats.getStatements());
+            }
+        }
+    }
+
+    private static class StatementsHeaderOutputStream extends ServletOutputStream {
+        private final ServletOutputStream delegate;
+        private Runnable beforeFirstWrite;
+
+        StatementsHeaderOutputStream(ServletOutputStream delegate, Runnable beforeFirstWrite) {
+            this.delegate = delegate;
+            this.beforeFirstWrite = beforeFirstWrite;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            beforeWrite();
+            delegate.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            beforeWrite();
+            delegate.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            beforeWrite();
+            delegate.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            beforeWrite();
+            delegate.close();
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            delegate.setWriteListener(writeListener);
+        }
+
+        private void beforeWrite() {
+            if (beforeFirstWrite != null) {
+                beforeFirstWrite.run();
+                beforeFirstWrite = null;
+            }
+        }
+    }
+}
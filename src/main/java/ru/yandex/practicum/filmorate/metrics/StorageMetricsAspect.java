@@ -0,0 +1,64 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+@Aspect
+@Component
+public class StorageMetricsAspect {
+    private static final String NO_EXCEPTION = "none";
+
+    private final MeterRegistry meterRegistry;
+    // Таймеры по классу, методу и исключению: регистрируются при первом вызове, дальше вызов только ищет готовый.
+    private final Map<Class<?>, Map<String, Map<String, Timer>>> timers = new ConcurrentHashMap<>();
+
+    public StorageMetricsAspect(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    // Кэширующие и базовые хранилища реализуют одни и те же интерфейсы, тег class разводит их по слоям.
+    @Around("execution(public * ru.yandex.practicum.filmorate.storage.FilmStorage+.*(..))" +
+            " || execution(public * ru.yandex.practicum.filmorate.storage.UserStorage+.*(..))" +
+            " || execution(public * ru.yandex.practicum.filmorate.storage.dao.LikesDao+.*(..))" +
+            " || execution(public * ru.yandex.practicum.filmorate.storage.dao.FriendshipDao+.*(..))")
+    public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+        Clock clock = meterRegistry.config().clock();
+        long start = clock.monotonicTime();
+        String exception = NO_EXCEPTION;
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable e) {
+            exception = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            timer(AopUtils.getTargetClass(joinPoint.getTarget()), joinPoint.getSignature().getName(), exception)
+                    .record(clock.monotonicTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Timer timer(Class<?> targetClass, String method, String exception) {
+        Map<String, Timer> byException = timers
+                .computeIfAbsent(targetClass, key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(method, key -> new ConcurrentHashMap<>());
+        Timer timer = byException.get(exception);
+        if (timer != null) {
+            return timer;
+        }
+        return byException.computeIfAbsent(exception, key -> Timer.builder("filmorate.storage")
+                .description("Время выполнения методов хранилищ и DAO")
+                .tag("class", targetClass.getSimpleName())
+                .tag("method", method)
+                .tag("exception", exception)
+                .register(meterRegistry));
+    }
+}
@@ -32,6 +32,7 @@ public class Film {
     @Min(1)
     @NotNull(message = "Продолжительность не может быть пустым.")
     private int duration;
+    @NotNull(message = "Рейтинг MPA не может быть пустым.")
     private Mpa mpa;
     private List<Genre> genres = new ArrayList<>();
 
@@ -0,0 +1,23 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportReport {
+    private int received;
+    private int imported;
+    private int failed;
+    private long elapsedMillis;
+    private long rowsPerSecond;
+    @Builder.Default
+    private List<ImportError> errors = new ArrayList<>();
+}
@@ -0,0 +1,131 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.model.ImportError;
+import ru.yandex.practicum.filmorate.model.ImportReport;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+@Slf4j
+public class BatchImport<T> {
+    private final String name;
+    private final int batchSize;
+    private final TransactionTemplate transactionTemplate;
+    private final Validator beanValidator;
+    private final Consumer<T> validator;
+    private final Consumer<List<T>> batchWriter;
+
+    private final long startedAt = System.nanoTime();
+    private final List<T> chunk = new ArrayList<>();
+    private final List<Integer> chunkIndexes = new ArrayList<>();
+    private final List<ImportError> errors = new ArrayList<>();
+    private int received;
+    private int imported;
+
+    public BatchImport(String name,
+                       int batchSize,
+                       TransactionTemplate transactionTemplate,
+                       Validator beanValidator,
+                       Consumer<T> validator,
+                       Consumer<List<T>> batchWriter) {
+        this.name = name;
+        this.batchSize = batchSize;
+        this.transactionTemplate = transactionTemplate;
+        this.beanValidator = beanValidator;
+        this.validator = validator;
+        this.batchWriter = batchWriter;
+    }
+
+    public void add(T record) {
+        int index = received++;
+        // Те же ограничения, что дает @Valid на одиночном создании: без них сервисная проверка упала бы на null.
+        Set<ConstraintViolation<T>> violations = beanValidator.validate(record);
+        if (!violations.isEmpty()) {
+            errors.add(new ImportError(index, messageOf(violations)));
+            return;
+        }
+        try {
+            validator.accept(record);
+        } catch (RuntimeException e) {
+            errors.add(new ImportError(index, messageOf(e)));
+            return;
+        }
+        chunk.add(record);
+        chunkIndexes.add(index);
+        if (chunk.size() >= batchSize) {
+            flush();
+        }
+    }
+
+    public void reject(String message) {
+        errors.add(new ImportError(received++, message));
+    }
+
+    public ImportReport finish() {
+        flush();
+        errors.sort(Comparator.comparingInt(ImportError::getIndex));
+        long elapsedNanos = Math.max(System.nanoTime() - startedAt, 1);
+        long rowsPerSecond = imported * TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+        log.info("Импорт {}: получено {}, загружено {}, ошибок {}, {} строк/с.",
+                name, received, imported, errors.size(), rowsPerSecond);
+        return ImportReport.builder()
+                .received(received)
+                .imported(imported)
+                .failed(errors.size())
+                .elapsedMillis(TimeUnit.NANOSECONDS.toMillis(elapsedNanos))
+                .rowsPerSecond(rowsPerSecond)
+                .errors(errors)
+                .build();
+    }
+
+    private void flush() {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> batchWriter.accept(chunk));
+            imported += chunk.size();
+        } catch (RuntimeException e) {
+            // Пачка откатилась целиком: повторяем ее по одной записи, чтобы найти виновные.
+            log.warn("Пачка из {} записей не загружена, повтор по одной: {}", chunk.size(), messageOf(e));
+            for (int i = 0; i < chunk.size(); i++) {
+                writeSingle(chunk.get(i), chunkIndexes.get(i));
+            }
+        }
+        chunk.clear();
+        chunkIndexes.clear();
+    }
+
+    private void writeSingle(T record, int index) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> batchWriter.accept(List.of(record)));
+            imported++;
+        } catch (RuntimeException e) {
+            errors.add(new ImportError(index, messageOf(e)));
+        }
+    }
+
+    private String messageOf(Set<ConstraintViolation<T>> violations) {
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
+
+    private String messageOf(RuntimeException e) {
+        Throwable cause = e;
+        while (cause.getCause() != null && cause.getCause() != cause) {
+            cause = cause.getCause();
+        }
+        return cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+    }
+}
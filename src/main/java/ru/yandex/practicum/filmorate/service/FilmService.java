@@ -2,71 +2,82 @@ package ru.yandex.practicum.filmorate.service;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.enums.FilmSearchField;
 import ru.yandex.practicum.filmorate.exception.FilmNotFoundException;
 import ru.yandex.practicum.filmorate.exception.UserNotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.storage.FilmStorage;
-import ru.yandex.practicum.filmorate.storage.UserStorage;
 import ru.yandex.practicum.filmorate.storage.dao.LikesDao;
 
+import javax.validation.Validator;
 import java.time.LocalDate;
 import java.util.Collection;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
 
 @Slf4j
 @Service
 public class FilmService {
     private final LocalDate startFilmDate = LocalDate.of(1895, 12, 28);
     private final FilmStorage filmStorage;
-    private final UserStorage userStorage;
-    private final FilmIdGenerator filmIdGenerator;
     private final LikesDao likesDao;
+    private final TransactionTemplate transactionTemplate;
+    private final Validator validator;
+    private final int importBatchSize;
 
     @Autowired
-    public FilmService(@Qualifier("FilmDbStorage") FilmStorage filmStorage,
-                       @Qualifier("UserDbStorage") UserStorage userStorage,
-                       FilmIdGenerator filmIdGenerator,
-                       LikesDao likesDao) {
+    public FilmService(FilmStorage filmStorage,
+                       LikesDao likesDao,
+                       TransactionTemplate transactionTemplate,
+                       Validator validator,
+                       @Value("${filmorate.import.batch-size:1000}") int importBatchSize) {
         this.filmStorage = filmStorage;
-        this.userStorage = userStorage;
-        this.filmIdGenerator = filmIdGenerator;
         this.likesDao = likesDao;
+        this.transactionTemplate = transactionTemplate;
+        this.validator = validator;
+        this.importBatchSize = importBatchSize;
     }
 
     public List<Film> findAll() {
         return filmStorage.findAll();
     }
 
+    public List<Film> findPage(int afterId, int limit) {
+        return filmStorage.findPage(afterId, limit);
+    }
+
+    public void exportAll(Consumer<Film> consumer) {
+        filmStorage.streamAll(consumer);
+    }
+
     public Film create(Film film) throws ValidationException {
         filmValidator(film);
-        film.setId(filmIdGenerator.generateId());
         return filmStorage.create(film);
     }
 
+    public BatchImport<Film> startImport() {
+        return new BatchImport<>("фильмов", importBatchSize, transactionTemplate, validator,
+                this::filmValidator,
+                filmStorage::createAll);
+    }
+
     public Film update(Film film) throws ValidationException, FilmNotFoundException {
         filmValidator(film);
-        if (filmStorage.containsFilm(film.getId())) {
-            return filmStorage.update(film);
-        } else {
-            String message = "Фильма с id =" + film.getId() + ", не найдено.";
-            log.warn(message);
-            throw new FilmNotFoundException(message);
-        }
+        return filmStorage.update(film);
     }
 
     public void addLike(int userId, int filmId) throws FilmNotFoundException, UserNotFoundException {
-        filmCheckerId(filmId);
-        userCheckerId(userId);
         likesDao.addLike(userId, filmId);
         log.debug("Добавлен лайк к фильму с id: {}, пользователем с id: {}.", filmId, userId);
     }
 
     public void deleteLike(int userId, int filmId) throws FilmNotFoundException, UserNotFoundException {
-        filmCheckerId(filmId);
-        userCheckerId(userId);
         log.debug("Удален лайк у фильма с id: {}, пользователем с id: {}.", filmId, userId);
         likesDao.deleteLike(userId, filmId);
     }
@@ -75,10 +86,34 @@ public class FilmService {
         return filmStorage.findTopFilms(count);
     }
 
+    public Collection<Film> findTopFilms(int count, Integer genreId, Integer year) {
+        return filmStorage.findTopFilms(count, genreId, year);
+    }
+
+    public Collection<Film> searchFilms(String query, String by, int count) throws ValidationException {
+        if (query == null || query.isBlank()) {
+            throw new ValidationException("Введите поисковый запрос.");
+        }
+        Set<FilmSearchField> fields = EnumSet.noneOf(FilmSearchField.class);
+        for (String param : by.split(",")) {
+            fields.add(searchFieldOf(param.trim()));
+        }
+        return filmStorage.searchFilms(query, fields, count);
+    }
+
     public Film findFilmById(int id) throws FilmNotFoundException {
         return filmStorage.findFilmById(id).orElse(null);
     }
 
+    private FilmSearchField searchFieldOf(String param) throws ValidationException {
+        for (FilmSearchField field : FilmSearchField.values()) {
+            if (field.getParam().equalsIgnoreCase(param)) {
+                return field;
+            }
+        }
+        throw new ValidationException("Неизвестное поле поиска: " + param);
+    }
+
     private void filmValidator(Film film) throws ValidationException {
         if (film == null) {
             String message = "Некорректный ввод. Передан пустой фильм.";
@@ -111,16 +146,4 @@ public class FilmService {
             throw new ValidationException(message);
         }
     }
-
-    private void userCheckerId(int userId) throws UserNotFoundException {
-        if (!userStorage.containsUser(userId)) {
-            throw new UserNotFoundException("Пользователя с id: " + userId + ", не существует.");
-        }
-    }
-
-    private void filmCheckerId(int filmId) throws FilmNotFoundException {
-        if (!filmStorage.containsFilm(filmId)) {
-            throw new FilmNotFoundException("Фильма с id: " + filmId + ", не существует.");
-        }
-    }
 }
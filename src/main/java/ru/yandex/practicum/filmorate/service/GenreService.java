@@ -4,26 +4,26 @@ import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exception.IllegalIdException;
 import ru.yandex.practicum.filmorate.model.Genre;
-import ru.yandex.practicum.filmorate.storage.dao.GenreDao;
+import ru.yandex.practicum.filmorate.storage.cache.ReferenceDataCache;
 
 import java.util.List;
 
 @Service
 public class GenreService {
-    private final GenreDao genreDao;
+    private final ReferenceDataCache referenceDataCache;
 
-    public GenreService(GenreDao genreDao) {
-        this.genreDao = genreDao;
+    public GenreService(ReferenceDataCache referenceDataCache) {
+        this.referenceDataCache = referenceDataCache;
     }
 
     public List<Genre> findAll() {
-        return genreDao.findAll();
+        return referenceDataCache.findAllGenres();
     }
 
     public Genre findGenreById(int id) {
 
         try {
-            return genreDao.findGenreById(id);
+            return referenceDataCache.findGenreById(id);
         } catch (EmptyResultDataAccessException e) {
             throw new IllegalIdException("Не найдено genre c id = " + id);
         }
@@ -4,26 +4,26 @@ import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exception.IllegalIdException;
 import ru.yandex.practicum.filmorate.model.Mpa;
-import ru.yandex.practicum.filmorate.storage.dao.MpaDao;
+import ru.yandex.practicum.filmorate.storage.cache.ReferenceDataCache;
 
 import java.util.List;
 
 @Service
 public class MpaService {
 
-    private final MpaDao mpaDao;
+    private final ReferenceDataCache referenceDataCache;
 
-    public MpaService(MpaDao mpaRatingDao) {
-        this.mpaDao = mpaRatingDao;
+    public MpaService(ReferenceDataCache referenceDataCache) {
+        this.referenceDataCache = referenceDataCache;
     }
 
     public List<Mpa> findAll() {
-        return mpaDao.findAll();
+        return referenceDataCache.findAllMpa();
     }
 
     public Mpa findMpaById(int id) {
         try {
-            return mpaDao.findMpaById(id);
+            return referenceDataCache.findMpaById(id);
         } catch (EmptyResultDataAccessException e) {
             throw new IllegalIdException("Не найдено mpa c id =" + id);
         }
@@ -3,54 +3,85 @@ package ru.yandex.practicum.filmorate.service;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.enums.FriendshipStatus;
 import ru.yandex.practicum.filmorate.exception.UserNotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 import ru.yandex.practicum.filmorate.storage.dao.FriendshipDao;
+import ru.yandex.practicum.filmorate.storage.index.FriendGraphIndex;
+import ru.yandex.practicum.filmorate.storage.index.LikeMatrix;
 
+import javax.validation.Validator;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 @Slf4j
 @Service
 public class UserService {
     private final UserStorage userStorage;
+    private final FilmStorage filmStorage;
     private final FriendshipDao friendshipDao;
-    private final UserIdGenerator userIdGenerator;
+    private final FriendGraphIndex friendGraphIndex;
+    private final LikeMatrix likeMatrix;
+    private final TransactionTemplate transactionTemplate;
+    private final Validator validator;
+    private final int importBatchSize;
 
     @Autowired
-    public UserService(@Qualifier("UserDbStorage") UserStorage userStorage,
-                       UserIdGenerator userIdGenerator,
-                       FriendshipDao friendshipDao) {
+    public UserService(@Qualifier("CachedUserStorage") UserStorage userStorage,
+                       FilmStorage filmStorage,
+                       FriendshipDao friendshipDao,
+                       FriendGraphIndex friendGraphIndex,
+                       LikeMatrix likeMatrix,
+                       TransactionTemplate transactionTemplate,
+                       Validator validator,
+                       @Value("${filmorate.import.batch-size:1000}") int importBatchSize) {
         this.userStorage = userStorage;
-        this.userIdGenerator = userIdGenerator;
+        this.filmStorage = filmStorage;
         this.friendshipDao = friendshipDao;
+        this.friendGraphIndex = friendGraphIndex;
+        this.likeMatrix = likeMatrix;
+        this.transactionTemplate = transactionTemplate;
+        this.validator = validator;
+        this.importBatchSize = importBatchSize;
     }
 
     public List<User> findAll() {
         return userStorage.findAll();
     }
 
+    public List<User> findPage(int afterId, int limit) {
+        return userStorage.findPage(afterId, limit);
+    }
+
+    public void exportAll(Consumer<User> consumer) {
+        userStorage.streamAll(consumer);
+    }
+
     public User create(User user) throws ValidationException {
-        user.setId(userIdGenerator.generateId());
         userValidator(user);
         return userStorage.create(user);
     }
 
+    public BatchImport<User> startImport() {
+        return new BatchImport<>("пользователей", importBatchSize, transactionTemplate, validator,
+                this::userValidator,
+                userStorage::createAll);
+    }
+
     public User update(User user) throws ValidationException, UserNotFoundException {
         userValidator(user);
-        if (userStorage.containsUser(user.getId())) {
-            return userStorage.update(user);
-        } else {
-            String message = "Пользователя с id = " + user.getId() + ", не найдено.";
-            log.warn(message);
-            throw new UserNotFoundException(message);
-        }
+        return userStorage.update(user);
     }
 
     public void addFriend(int userId, int friendId) throws UserNotFoundException {
@@ -79,10 +110,29 @@ public class UserService {
         return allFriends;
     }
 
+    public Collection<User> getFriendsList(int userId, String status) throws UserNotFoundException {
+        if (status == null) {
+            return getFriendsList(userId);
+        }
+        FriendshipStatus friendshipStatus = friendshipStatusOf(status.trim());
+        getUserById(userId);
+        return userStorage.findUsersByIds(friendGraphIndex.friendIds(userId, friendshipStatus));
+    }
+
     public Collection<User> getCommonFriends(int userId, int friendId) throws UserNotFoundException {
         return userStorage.getCommonFriends(userId, friendId);
     }
 
+    public Collection<User> getSuggestedFriends(int userId, int count) throws UserNotFoundException {
+        getUserById(userId);
+        return userStorage.findUsersByIds(friendGraphIndex.suggestedFriendIds(userId, count));
+    }
+
+    public Collection<Film> getRecommendations(int userId, int count) throws UserNotFoundException {
+        getUserById(userId);
+        return filmStorage.findFilmsByIds(likeMatrix.recommendedFilmIds(userId, count));
+    }
+
     public User getUserById(int userId) throws UserNotFoundException {
         validateUserId(userId);
         return userStorage.findUserById(userId)
@@ -90,6 +140,15 @@ public class UserService {
                         String.format("Пользователь с id = %d, не найден.", userId)));
     }
 
+    private FriendshipStatus friendshipStatusOf(String param) throws ValidationException {
+        for (FriendshipStatus status : FriendshipStatus.values()) {
+            if (status.getParam().equalsIgnoreCase(param)) {
+                return status;
+            }
+        }
+        throw new ValidationException("Неизвестный статус дружбы: " + param);
+    }
+
     private void userValidator(User user) throws ValidationException {
         if (user == null) {
             String message = "Некорректный ввод. Передан пустой пользователь.";
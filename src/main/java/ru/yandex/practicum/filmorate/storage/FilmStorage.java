@@ -1,5 +1,6 @@
 package ru.yandex.practicum.filmorate.storage;
 
+import ru.yandex.practicum.filmorate.enums.FilmSearchField;
 import ru.yandex.practicum.filmorate.exception.FilmNotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Film;
@@ -7,18 +8,32 @@ import ru.yandex.practicum.filmorate.model.Film;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 public interface FilmStorage {
 
     List<Film> findAll();
 
+    List<Film> findPage(int afterId, int limit);
+
+    void streamAll(Consumer<Film> consumer);
+
     Film create(Film film) throws ValidationException;
 
+    List<Film> createAll(List<Film> films);
+
     Film update(Film film) throws ValidationException, FilmNotFoundException;
 
     Optional<Film> findFilmById(int filmId) throws FilmNotFoundException;
 
+    List<Film> findFilmsByIds(List<Integer> filmIds);
+
     boolean containsFilm(int filmId);
 
     Collection<Film> findTopFilms(int count);
+
+    Collection<Film> findTopFilms(int count, Integer genreId, Integer year);
+
+    Collection<Film> searchFilms(String query, Set<FilmSearchField> fields, int count);
 }
@@ -0,0 +1,72 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.flywaydb.core.api.MigrationVersion;
+import org.flywaydb.core.api.migration.Context;
+import org.flywaydb.core.api.migration.JavaMigration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// V5: внешние ключи likes.film_id и user_friends.friend_id переводятся на индексы из V2.
+// H2 создал для ключей из V1 собственные индексы по тем же столбцам, и планировщик при равной стоимости
+// выбирал их, а индексы V2 только удорожали каждую запись. Имена ключей H2 генерирует сам, поэтому
+// миграция на Java: она находит их в information_schema. Новый ключ H2 строит на уже существующем индексе.
+@Component
+public class ForeignKeyIndexMigration implements JavaMigration {
+    private static final String FIND_FOREIGN_KEYS_SQL = "SELECT tc.constraint_name " +
+            "FROM information_schema.table_constraints tc " +
+            "JOIN information_schema.key_column_usage kcu ON kcu.constraint_schema = tc.constraint_schema " +
+            "AND kcu.constraint_name = tc.constraint_name " +
+            "WHERE tc.constraint_type = 'FOREIGN KEY' AND tc.table_schema = CURRENT_SCHEMA " +
+            "AND tc.table_name = ? AND kcu.column_name = ?";
+
+    @Override
+    public MigrationVersion getVersion() {
+        return MigrationVersion.fromVersion("5");
+    }
+
+    @Override
+    public String getDescription() {
+        return "foreign keys on secondary indexes";
+    }
+
+    @Override
+    public Integer getChecksum() {
+        return null;
+    }
+
+    @Override
+    public boolean isUndo() {
+        return false;
+    }
+
+    @Override
+    public boolean isBaselineMigration() {
+        return false;
+    }
+
+    @Override
+    public boolean canExecuteInTransaction() {
+        return true;
+    }
+
+    @Override
+    public void migrate(Context context) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(new SingleConnectionDataSource(context.getConnection(), true));
+        recreateForeignKey(jdbcTemplate, "likes", "film_id", "films", "film_id", "likes_film_id_fk");
+        recreateForeignKey(jdbcTemplate, "user_friends", "friend_id", "users", "user_id", "user_friends_friend_id_fk");
+    }
+
+    private void recreateForeignKey(JdbcTemplate jdbcTemplate, String table, String column,
+                                    String referencedTable, String referencedColumn, String name) {
+        List<String> foreignKeys = jdbcTemplate.queryForList(FIND_FOREIGN_KEYS_SQL, String.class,
+                table.toUpperCase(), column.toUpperCase());
+        for (String foreignKey : foreignKeys) {
+            jdbcTemplate.execute("ALTER TABLE " + table + " DROP CONSTRAINT \"" + foreignKey + "\"");
+        }
+        jdbcTemplate.execute("ALTER TABLE " + table + " ADD CONSTRAINT " + name + " FOREIGN KEY (" + column + ") " +
+                "REFERENCES " + referencedTable + " (" + referencedColumn + ")");
+    }
+}
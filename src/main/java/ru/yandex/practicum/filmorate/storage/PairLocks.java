@@ -0,0 +1,44 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+// Блокировки пар id по полосам. Строки в базе освобождаются при фиксации, до обработчиков afterCommit, поэтому
+// добавление и удаление одной пары могли бы применить изменения индексов в другом порядке, чем в базе.
+// Блокировка пары держится от первого запроса до завершения транзакции, включая все afterCommit.
+public final class PairLocks {
+    private final ReentrantLock[] stripes;
+
+    public PairLocks(int stripeCount) {
+        if (Integer.bitCount(stripeCount) != 1) {
+            throw new IllegalArgumentException("Число полос должно быть степенью двойки: " + stripeCount);
+        }
+        stripes = new ReentrantLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    // Вызывается первым действием внешней транзакции, пока она не держит блокировок в базе: иначе
+    // ожидание полосы и ожидание строки могли бы замкнуться во взаимную блокировку.
+    public void lockUntilCompletion(int first, int second) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Блокировка пары требует активной транзакции.");
+        }
+        ReentrantLock lock = stripes[stripeOf(first, second)];
+        lock.lock();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                lock.unlock();
+            }
+        });
+    }
+
+    private int stripeOf(int first, int second) {
+        int h = first * 0x9E3779B9 + second;
+        return (h ^ (h >>> 16)) & (stripes.length - 1);
+    }
+}
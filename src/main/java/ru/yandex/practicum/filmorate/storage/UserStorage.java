@@ -7,16 +7,25 @@ import ru.yandex.practicum.filmorate.model.User;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface UserStorage {
     List<User> findAll();
 
+    List<User> findPage(int afterId, int limit);
+
+    void streamAll(Consumer<User> consumer);
+
     User create(User user) throws ValidationException;
 
+    List<User> createAll(List<User> users);
+
     User update(User user) throws ValidationException, UserNotFoundException;
 
     Optional<User> findUserById(int id) throws UserNotFoundException;
 
+    List<User> findUsersByIds(List<Integer> userIds);
+
     boolean containsUser(int userId);
 
     Collection<User> getCommonFriends(int userId, int friendId) throws UserNotFoundException;
@@ -0,0 +1,171 @@
+package ru.yandex.practicum.filmorate.storage.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.enums.FilmSearchField;
+import ru.yandex.practicum.filmorate.exception.FilmNotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.index.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.storage.index.FilmSearchIndex;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+@Primary
+@Component
+@Qualifier("CachedFilmStorage")
+@ConditionalOnProperty(name = "filmorate.films.read-model", havingValue = "cache", matchIfMissing = true)
+public class CachedFilmStorage implements FilmStorage {
+    private final FilmStorage filmStorage;
+    private final FilmPopularityIndex popularityIndex;
+    private final FilmSearchIndex searchIndex;
+    private final Cache<Integer, Film> films;
+    private final AtomicLong writes = new AtomicLong();
+
+    public CachedFilmStorage(@Qualifier("FilmDbStorage") FilmStorage filmStorage,
+                             FilmPopularityIndex popularityIndex,
+                             FilmSearchIndex searchIndex,
+                             MeterRegistry meterRegistry,
+                             @Value("${filmorate.cache.films.maximum-size:10000}") long maximumSize,
+                             @Value("${filmorate.cache.films.expire-after-write:10m}") Duration expireAfterWrite) {
+        this.filmStorage = filmStorage;
+        this.popularityIndex = popularityIndex;
+        this.searchIndex = searchIndex;
+        this.films = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, films, "films");
+    }
+
+    @Override
+    public List<Film> findAll() {
+        return filmStorage.findAll();
+    }
+
+    @Override
+    public List<Film> findPage(int afterId, int limit) {
+        return filmStorage.findPage(afterId, limit);
+    }
+
+    @Override
+    public void streamAll(Consumer<Film> consumer) {
+        filmStorage.streamAll(consumer);
+    }
+
+    @Override
+    public Film create(Film film) throws ValidationException {
+        Film created = filmStorage.create(film);
+        films.invalidate(created.getId());
+        return created;
+    }
+
+    @Override
+    public List<Film> createAll(List<Film> films) {
+        List<Film> created = filmStorage.createAll(films);
+        for (Film film : created) {
+            this.films.invalidate(film.getId());
+        }
+        return created;
+    }
+
+    @Override
+    public Film update(Film film) throws ValidationException, FilmNotFoundException {
+        // Сначала запись в базу, потом сброс ключа: запрос к базе не держит блокировку кэша.
+        // Одиночная загрузка идет под блокировкой ключа, поэтому сброс дождется ее и уберет старую версию,
+        // а пакетная проверяет счетчик записей.
+        Film updated = filmStorage.update(film);
+        writes.incrementAndGet();
+        films.invalidate(film.getId());
+        return updated;
+    }
+
+    @Override
+    public Optional<Film> findFilmById(int filmId) throws FilmNotFoundException {
+        return Optional.ofNullable(films.get(filmId, id -> filmStorage.findFilmById(id).orElse(null)))
+                .map(CachedFilmStorage::copyOf);
+    }
+
+    @Override
+    public List<Film> findFilmsByIds(List<Integer> filmIds) {
+        long generation = writes.get();
+        Map<Integer, Film> found = films.getAll(filmIds, this::loadAll);
+        if (writes.get() != generation) {
+            // Пакет мог прочитать фильм до параллельного обновления и положить его после сброса ключа.
+            films.invalidateAll(filmIds);
+        }
+        List<Film> result = new ArrayList<>(filmIds.size());
+        for (Integer filmId : filmIds) {
+            Film film = found.get(filmId);
+            if (film != null) {
+                result.add(copyOf(film));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean containsFilm(int filmId) {
+        return films.getIfPresent(filmId) != null || filmStorage.containsFilm(filmId);
+    }
+
+    @Override
+    public Collection<Film> findTopFilms(int count) {
+        return findFilmsByIds(popularityIndex.findTopFilmIds(count));
+    }
+
+    @Override
+    public Collection<Film> findTopFilms(int count, Integer genreId, Integer year) {
+        return findFilmsByIds(popularityIndex.findTopFilmIds(count, genreId, year));
+    }
+
+    @Override
+    public Collection<Film> searchFilms(String query, Set<FilmSearchField> fields, int count) {
+        return findFilmsByIds(searchIndex.search(query, fields, count));
+    }
+
+    private Map<Integer, Film> loadAll(Iterable<? extends Integer> filmIds) {
+        List<Integer> ids = new ArrayList<>();
+        filmIds.forEach(ids::add);
+        Map<Integer, Film> loaded = new HashMap<>();
+        for (Film film : filmStorage.findFilmsByIds(ids)) {
+            loaded.put(film.getId(), film);
+        }
+        return loaded;
+    }
+
+    // Наружу отдается копия: изменения вызывающего кода не должны попадать в закэшированный фильм.
+    private static Film copyOf(Film film) {
+        Mpa mpa = film.getMpa() == null ? null : new Mpa(film.getMpa().getId(), film.getMpa().getName(),
+                film.getMpa().getDescription());
+        List<Genre> genres = null;
+        if (film.getGenres() != null) {
+            genres = new ArrayList<>(film.getGenres().size());
+            for (Genre genre : film.getGenres()) {
+                genres.add(new Genre(genre.getId(), genre.getName()));
+            }
+        }
+        return new Film(film.getId(), film.getName(), film.getDescription(), film.getReleaseDate(),
+                film.getDuration(), mpa, genres);
+    }
+}
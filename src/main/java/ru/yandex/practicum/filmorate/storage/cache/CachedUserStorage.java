@@ -0,0 +1,139 @@
+package ru.yandex.practicum.filmorate.storage.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.UserNotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+import ru.yandex.practicum.filmorate.storage.index.FriendGraphIndex;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+@Component
+@Qualifier("CachedUserStorage")
+public class CachedUserStorage implements UserStorage {
+    private final UserStorage userStorage;
+    private final FriendGraphIndex friendGraphIndex;
+    private final Cache<Integer, User> users;
+    private final AtomicLong writes = new AtomicLong();
+
+    public CachedUserStorage(@Qualifier("UserDbStorage") UserStorage userStorage,
+                             FriendGraphIndex friendGraphIndex,
+                             MeterRegistry meterRegistry,
+                             @Value("${filmorate.cache.users.maximum-size:10000}") long maximumSize,
+                             @Value("${filmorate.cache.users.expire-after-write:10m}") Duration expireAfterWrite) {
+        this.userStorage = userStorage;
+        this.friendGraphIndex = friendGraphIndex;
+        this.users = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, users, "users");
+    }
+
+    @Override
+    public List<User> findAll() {
+        return userStorage.findAll();
+    }
+
+    @Override
+    public List<User> findPage(int afterId, int limit) {
+        return userStorage.findPage(afterId, limit);
+    }
+
+    @Override
+    public void streamAll(Consumer<User> consumer) {
+        userStorage.streamAll(consumer);
+    }
+
+    @Override
+    public User create(User user) throws ValidationException {
+        User created = userStorage.create(user);
+        users.invalidate(created.getId());
+        return created;
+    }
+
+    @Override
+    public List<User> createAll(List<User> users) {
+        List<User> created = userStorage.createAll(users);
+        for (User user : created) {
+            this.users.invalidate(user.getId());
+        }
+        return created;
+    }
+
+    @Override
+    public User update(User user) throws ValidationException, UserNotFoundException {
+        // Сначала запись в базу, потом сброс ключа: запрос к базе не держит блокировку кэша.
+        // Одиночная загрузка идет под блокировкой ключа, поэтому сброс дождется ее и уберет старую версию,
+        // а пакетная проверяет счетчик записей.
+        User updated = userStorage.update(user);
+        writes.incrementAndGet();
+        users.invalidate(user.getId());
+        return updated;
+    }
+
+    @Override
+    public Optional<User> findUserById(int id) throws UserNotFoundException {
+        return Optional.ofNullable(users.get(id, userId -> userStorage.findUserById(userId).orElse(null)))
+                .map(CachedUserStorage::copyOf);
+    }
+
+    @Override
+    public List<User> findUsersByIds(List<Integer> userIds) {
+        long generation = writes.get();
+        Map<Integer, User> found = users.getAll(userIds, this::loadAll);
+        if (writes.get() != generation) {
+            // Пакет мог прочитать пользователя до параллельного обновления и положить его после сброса ключа.
+            users.invalidateAll(userIds);
+        }
+        List<User> result = new ArrayList<>(userIds.size());
+        for (Integer userId : userIds) {
+            User user = found.get(userId);
+            if (user != null) {
+                result.add(copyOf(user));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean containsUser(int userId) {
+        return users.getIfPresent(userId) != null || userStorage.containsUser(userId);
+    }
+
+    @Override
+    public Collection<User> getCommonFriends(int userId, int friendId) throws UserNotFoundException {
+        return findUsersByIds(friendGraphIndex.commonFriendIds(userId, friendId));
+    }
+
+    private Map<Integer, User> loadAll(Iterable<? extends Integer> userIds) {
+        List<Integer> ids = new ArrayList<>();
+        userIds.forEach(ids::add);
+        Map<Integer, User> loaded = new HashMap<>();
+        for (User user : userStorage.findUsersByIds(ids)) {
+            loaded.put(user.getId(), user);
+        }
+        return loaded;
+    }
+
+    // Наружу отдается копия: изменения вызывающего кода не должны попадать в закэшированного пользователя.
+    private static User copyOf(User user) {
+        return new User(user.getId(), user.getEmail(), user.getLogin(), user.getName(), user.getBirthday());
+    }
+}
@@ -0,0 +1,350 @@
+package ru.yandex.practicum.filmorate.storage.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.enums.FilmSearchField;
+import ru.yandex.practicum.filmorate.exception.FilmNotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.TransactionCallbacks;
+import ru.yandex.practicum.filmorate.storage.index.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.storage.index.FilmSearchIndex;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+// Весь каталог хранится по столбцам: на фильм приходится по элементу в примитивных массивах вместо графа объектов.
+// Film собирается только на время ответа, записи идут в FilmDbStorage и попадают в столбцы после коммита.
+@Slf4j
+@Primary
+@Component
+@Qualifier("ColumnarFilmStorage")
+@ConditionalOnProperty(name = "filmorate.films.read-model", havingValue = "columnar")
+public class ColumnarFilmStorage implements FilmStorage {
+    private static final String LOAD_FILMS_SQL = "SELECT film_id, name, description, release_date, duration, mpa_id " +
+            "FROM films ORDER BY film_id";
+    private static final String LOAD_GENRES_SQL = "SELECT film_id, genre_id FROM film_genres";
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int STREAM_CHUNK_SIZE = 1000;
+    private static final int NO_MPA = 0;
+
+    private final FilmStorage filmStorage;
+    private final JdbcTemplate jdbcTemplate;
+    private final FilmPopularityIndex popularityIndex;
+    private final FilmSearchIndex searchIndex;
+    private final ReferenceDataCache referenceDataCache;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // Строки упорядочены по id, поэтому поиск по id - двоичный, а новые фильмы обычно дописываются в конец.
+    private int size;
+    private int[] ids;
+    // Названия и описания почти не повторяются, поэтому хранятся как есть: словарь или intern() для них
+    // только добавил бы таблицу строк. Повторяющиеся значения (рейтинг, жанры) уже лежат числами.
+    private String[] names;
+    private String[] descriptions;
+    private int[] releaseDays;
+    private int[] durations;
+    private int[] mpaIds;
+    // Бит i маски установлен, если у фильма есть жанр с id = i.
+    private long[] genreMasks;
+
+    public ColumnarFilmStorage(@Qualifier("FilmDbStorage") FilmStorage filmStorage,
+                               JdbcTemplate jdbcTemplate,
+                               FilmPopularityIndex popularityIndex,
+                               FilmSearchIndex searchIndex,
+                               ReferenceDataCache referenceDataCache) {
+        this.filmStorage = filmStorage;
+        this.jdbcTemplate = jdbcTemplate;
+        this.popularityIndex = popularityIndex;
+        this.searchIndex = searchIndex;
+        this.referenceDataCache = referenceDataCache;
+        allocate(INITIAL_CAPACITY);
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        Map<Integer, Long> masks = new HashMap<>();
+        jdbcTemplate.query(LOAD_GENRES_SQL, rs -> {
+            masks.merge(rs.getInt("film_id"), genreBit(rs.getInt("genre_id")), (a, b) -> a | b);
+        });
+        lock.writeLock().lock();
+        try {
+            size = 0;
+            allocate(INITIAL_CAPACITY);
+            jdbcTemplate.query(LOAD_FILMS_SQL, rs -> {
+                int filmId = rs.getInt("film_id");
+                put(filmId,
+                        rs.getString("name"),
+                        rs.getString("description"),
+                        (int) rs.getDate("release_date").toLocalDate().toEpochDay(),
+                        rs.getInt("duration"),
+                        rs.getInt("mpa_id"),
+                        masks.getOrDefault(filmId, 0L));
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Столбцовая модель каталога построена, фильмов: {}.", size);
+    }
+
+    @Override
+    public List<Film> findAll() {
+        lock.readLock().lock();
+        try {
+            List<Film> films = new ArrayList<>(size);
+            for (int slot = 0; slot < size; slot++) {
+                films.add(filmAt(slot));
+            }
+            return films;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Film> findPage(int afterId, int limit) {
+        lock.readLock().lock();
+        try {
+            int from = firstSlotAfter(afterId);
+            int to = (int) Math.min(size, (long) from + limit);
+            List<Film> films = new ArrayList<>(Math.max(0, to - from));
+            for (int slot = from; slot < to; slot++) {
+                films.add(filmAt(slot));
+            }
+            return films;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void streamAll(Consumer<Film> consumer) {
+        // Блокировка берется на порцию, а не на всю выгрузку: медленный клиент не должен задерживать запись.
+        int afterId = 0;
+        List<Film> chunk;
+        do {
+            chunk = findPage(afterId, STREAM_CHUNK_SIZE);
+            chunk.forEach(consumer);
+            if (!chunk.isEmpty()) {
+                afterId = chunk.get(chunk.size() - 1).getId();
+            }
+        } while (chunk.size() == STREAM_CHUNK_SIZE);
+    }
+
+    @Override
+    public Film create(Film film) throws ValidationException {
+        Film created = filmStorage.create(film);
+        afterCommitPut(List.of(created));
+        return created;
+    }
+
+    @Override
+    public List<Film> createAll(List<Film> films) {
+        List<Film> created = filmStorage.createAll(films);
+        afterCommitPut(created);
+        return created;
+    }
+
+    @Override
+    public Film update(Film film) throws ValidationException, FilmNotFoundException {
+        Film updated = filmStorage.update(film);
+        afterCommitPut(List.of(updated));
+        return updated;
+    }
+
+    @Override
+    public Optional<Film> findFilmById(int filmId) throws FilmNotFoundException {
+        lock.readLock().lock();
+        try {
+            int slot = Arrays.binarySearch(ids, 0, size, filmId);
+            if (slot < 0) {
+                throw new FilmNotFoundException(String.format("Фильм c id = %d, не найден", filmId));
+            }
+            return Optional.of(filmAt(slot));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Film> findFilmsByIds(List<Integer> filmIds) {
+        lock.readLock().lock();
+        try {
+            List<Film> films = new ArrayList<>(filmIds.size());
+            for (int filmId : filmIds) {
+                int slot = Arrays.binarySearch(ids, 0, size, filmId);
+                if (slot >= 0) {
+                    films.add(filmAt(slot));
+                }
+            }
+            return films;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean containsFilm(int filmId) {
+        lock.readLock().lock();
+        try {
+            return Arrays.binarySearch(ids, 0, size, filmId) >= 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Collection<Film> findTopFilms(int count) {
+        return findTopFilms(count, null, null);
+    }
+
+    @Override
+    public Collection<Film> findTopFilms(int count, Integer genreId, Integer year) {
+        return findFilmsByIds(popularityIndex.findTopFilmIds(count, genreId, year));
+    }
+
+    @Override
+    public Collection<Film> searchFilms(String query, Set<FilmSearchField> fields, int count) {
+        return findFilmsByIds(searchIndex.search(query, fields, count));
+    }
+
+    private void afterCommitPut(List<Film> films) {
+        // Фильмы принадлежат вызывающему, поэтому значения столбцов снимаются сейчас, а применяются после коммита.
+        int count = films.size();
+        int[] filmIds = new int[count];
+        String[] filmNames = new String[count];
+        String[] filmDescriptions = new String[count];
+        int[] filmReleaseDays = new int[count];
+        int[] filmDurations = new int[count];
+        int[] filmMpaIds = new int[count];
+        long[] filmGenreMasks = new long[count];
+        for (int i = 0; i < count; i++) {
+            Film film = films.get(i);
+            filmIds[i] = film.getId();
+            filmNames[i] = film.getName();
+            filmDescriptions[i] = film.getDescription();
+            filmReleaseDays[i] = (int) film.getReleaseDate().toEpochDay();
+            filmDurations[i] = film.getDuration();
+            filmMpaIds[i] = film.getMpa() == null ? NO_MPA : film.getMpa().getId();
+            for (Genre genre : film.getGenres()) {
+                filmGenreMasks[i] |= genreBit(genre.getId());
+            }
+        }
+        TransactionCallbacks.afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                for (int i = 0; i < count; i++) {
+                    put(filmIds[i], filmNames[i], filmDescriptions[i], filmReleaseDays[i], filmDurations[i],
+                            filmMpaIds[i], filmGenreMasks[i]);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    private void put(int filmId, String name, String description, int releaseDay, int duration, int mpaId,
+                     long genreMask) {
+        int slot;
+        if (size == 0 || ids[size - 1] < filmId) {
+            slot = size++;
+            ensureCapacity(size);
+        } else {
+            slot = Arrays.binarySearch(ids, 0, size, filmId);
+            if (slot < 0) {
+                // Параллельные транзакции могут зафиксироваться не в порядке выдачи id.
+                slot = -slot - 1;
+                ensureCapacity(size + 1);
+                shift(slot);
+                size++;
+            }
+        }
+        ids[slot] = filmId;
+        names[slot] = name;
+        descriptions[slot] = description;
+        releaseDays[slot] = releaseDay;
+        durations[slot] = duration;
+        mpaIds[slot] = mpaId;
+        genreMasks[slot] = genreMask;
+    }
+
+    private Film filmAt(int slot) {
+        long mask = genreMasks[slot];
+        List<Genre> genres = new ArrayList<>(Long.bitCount(mask));
+        for (long bits = mask; bits != 0; bits &= bits - 1) {
+            genres.add(referenceDataCache.findGenreById(Long.numberOfTrailingZeros(bits)));
+        }
+        return Film.builder()
+                .id(ids[slot])
+                .name(names[slot])
+                .description(descriptions[slot])
+                .releaseDate(LocalDate.ofEpochDay(releaseDays[slot]))
+                .duration(durations[slot])
+                .mpa(mpaIds[slot] == NO_MPA ? null : referenceDataCache.findMpaById(mpaIds[slot]))
+                .genres(genres)
+                .build();
+    }
+
+    private int firstSlotAfter(int filmId) {
+        int slot = Arrays.binarySearch(ids, 0, size, filmId);
+        return slot >= 0 ? slot + 1 : -slot - 1;
+    }
+
+    private static long genreBit(int genreId) {
+        if (genreId <= 0 || genreId >= Long.SIZE) {
+            throw new IllegalStateException("Жанр с id = " + genreId + " не помещается в битовую маску жанров.");
+        }
+        return 1L << genreId;
+    }
+
+    private void allocate(int capacity) {
+        ids = new int[capacity];
+        names = new String[capacity];
+        descriptions = new String[capacity];
+        releaseDays = new int[capacity];
+        durations = new int[capacity];
+        mpaIds = new int[capacity];
+        genreMasks = new long[capacity];
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= ids.length) {
+            return;
+        }
+        int grown = Math.max(capacity, ids.length * 2);
+        ids = Arrays.copyOf(ids, grown);
+        names = Arrays.copyOf(names, grown);
+        descriptions = Arrays.copyOf(descriptions, grown);
+        releaseDays = Arrays.copyOf(releaseDays, grown);
+        durations = Arrays.copyOf(durations, grown);
+        mpaIds = Arrays.copyOf(mpaIds, grown);
+        genreMasks = Arrays.copyOf(genreMasks, grown);
+    }
+
+    private void shift(int slot) {
+        int moved = size - slot;
+        System.arraycopy(ids, slot, ids, slot + 1, moved);
+        System.arraycopy(names, slot, names, slot + 1, moved);
+        System.arraycopy(descriptions, slot, descriptions, slot + 1, moved);
+        System.arraycopy(releaseDays, slot, releaseDays, slot + 1, moved);
+        System.arraycopy(durations, slot, durations, slot + 1, moved);
+        System.arraycopy(mpaIds, slot, mpaIds, slot + 1, moved);
+        System.arraycopy(genreMasks, slot, genreMasks, slot + 1, moved);
+    }
+}
@@ -0,0 +1,92 @@
+package ru.yandex.practicum.filmorate.storage.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.storage.dao.GenreDao;
+import ru.yandex.practicum.filmorate.storage.dao.MpaDao;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+@Slf4j
+@Component
+public class ReferenceDataCache {
+    private final MpaDao mpaDao;
+    private final GenreDao genreDao;
+    private final Counter mpaHits;
+    private final Counter mpaMisses;
+    private final Counter genreHits;
+    private final Counter genreMisses;
+    private volatile ConcurrentSkipListMap<Integer, Mpa> mpaById = new ConcurrentSkipListMap<>();
+    private volatile ConcurrentSkipListMap<Integer, Genre> genresById = new ConcurrentSkipListMap<>();
+
+    public ReferenceDataCache(MpaDao mpaDao, GenreDao genreDao, MeterRegistry meterRegistry) {
+        this.mpaDao = mpaDao;
+        this.genreDao = genreDao;
+        this.mpaHits = lookupCounter(meterRegistry, "mpa", "hit");
+        this.mpaMisses = lookupCounter(meterRegistry, "mpa", "miss");
+        this.genreHits = lookupCounter(meterRegistry, "genre", "hit");
+        this.genreMisses = lookupCounter(meterRegistry, "genre", "miss");
+    }
+
+    @PostConstruct
+    public void refresh() {
+        ConcurrentSkipListMap<Integer, Mpa> newMpa = new ConcurrentSkipListMap<>();
+        for (Mpa mpa : mpaDao.findAll()) {
+            newMpa.put(mpa.getId(), mpa);
+        }
+        ConcurrentSkipListMap<Integer, Genre> newGenres = new ConcurrentSkipListMap<>();
+        for (Genre genre : genreDao.findAll()) {
+            newGenres.put(genre.getId(), genre);
+        }
+        mpaById = newMpa;
+        genresById = newGenres;
+        log.info("Справочники загружены: mpa - {}, genres - {}.", newMpa.size(), newGenres.size());
+    }
+
+    public List<Mpa> findAllMpa() {
+        return new ArrayList<>(mpaById.values());
+    }
+
+    public Mpa findMpaById(int id) {
+        Mpa mpa = mpaById.get(id);
+        if (mpa != null) {
+            mpaHits.increment();
+            return mpa;
+        }
+        mpaMisses.increment();
+        mpa = mpaDao.findMpaById(id);
+        mpaById.put(id, mpa);
+        return mpa;
+    }
+
+    public List<Genre> findAllGenres() {
+        return new ArrayList<>(genresById.values());
+    }
+
+    public Genre findGenreById(int id) {
+        Genre genre = genresById.get(id);
+        if (genre != null) {
+            genreHits.increment();
+            return genre;
+        }
+        genreMisses.increment();
+        genre = genreDao.findGenreById(id);
+        genresById.put(id, genre);
+        return genre;
+    }
+
+    private static Counter lookupCounter(MeterRegistry meterRegistry, String type, String result) {
+        return Counter.builder("filmorate.reference.cache")
+                .description("Обращения к кэшу справочников MPA и жанров")
+                .tag("type", type)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,30 @@
+package ru.yandex.practicum.filmorate.storage.cache;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+@Component
+@Endpoint(id = "referencedata")
+public class ReferenceDataEndpoint {
+    private final ReferenceDataCache referenceDataCache;
+
+    public ReferenceDataEndpoint(ReferenceDataCache referenceDataCache) {
+        this.referenceDataCache = referenceDataCache;
+    }
+
+    @ReadOperation
+    public Map<String, Integer> sizes() {
+        return Map.of("mpa", referenceDataCache.findAllMpa().size(),
+                "genres", referenceDataCache.findAllGenres().size());
+    }
+
+    @WriteOperation
+    public Map<String, Integer> refresh() {
+        referenceDataCache.refresh();
+        return sizes();
+    }
+}
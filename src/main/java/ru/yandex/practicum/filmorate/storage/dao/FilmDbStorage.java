@@ -2,88 +2,286 @@ package ru.yandex.practicum.filmorate.storage.dao;
 
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCallback;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.enums.FilmSearchField;
 import ru.yandex.practicum.filmorate.exception.FilmNotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.Mpa;
 import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.TransactionCallbacks;
+import ru.yandex.practicum.filmorate.storage.cache.ReferenceDataCache;
+import ru.yandex.practicum.filmorate.storage.index.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.storage.index.FilmSearchIndex;
 
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.function.Consumer;
 
 @Component
 @Qualifier("FilmDbStorage")
 public class FilmDbStorage implements FilmStorage {
+    private static final int STREAM_FETCH_SIZE = 1000;
+    private static final int IN_CHUNK_SIZE = 1000;
+
     private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final FilmHydrator filmHydrator;
+    private final FilmPopularityIndex popularityIndex;
+    private final FilmSearchIndex searchIndex;
+    private final ReferenceDataCache referenceDataCache;
 
-    public FilmDbStorage(JdbcTemplate jdbcTemplate) {
+    public FilmDbStorage(JdbcTemplate jdbcTemplate,
+                         FilmHydrator filmHydrator,
+                         FilmPopularityIndex popularityIndex,
+                         FilmSearchIndex searchIndex,
+                         ReferenceDataCache referenceDataCache) {
         this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.filmHydrator = filmHydrator;
+        this.popularityIndex = popularityIndex;
+        this.searchIndex = searchIndex;
+        this.referenceDataCache = referenceDataCache;
     }
 
     @Override
     public List<Film> findAll() {
         String sql = "SELECT * FROM films";
-        return jdbcTemplate.query(sql, this::makeFilm);
+        return filmHydrator.hydrate(jdbcTemplate.query(sql, this::makeFilm));
+    }
+
+    @Override
+    public List<Film> findPage(int afterId, int limit) {
+        String sql = "SELECT * FROM films WHERE film_id > ? ORDER BY film_id LIMIT ?";
+        return filmHydrator.hydrate(jdbcTemplate.query(sql, this::makeFilm, afterId, limit));
+    }
+
+    @Override
+    public void streamAll(Consumer<Film> consumer) {
+        String sql = "SELECT f.*, fg.genre_id FROM films f " +
+                "LEFT JOIN film_genres fg ON f.film_id = fg.film_id " +
+                "ORDER BY f.film_id, fg.genre_id";
+
+        Film[] current = new Film[1];
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(STREAM_FETCH_SIZE);
+            return ps;
+        }, (RowCallbackHandler) rs -> {
+            int filmId = rs.getInt("film_id");
+            if (current[0] == null || current[0].getId() != filmId) {
+                if (current[0] != null) {
+                    consumer.accept(current[0]);
+                }
+                current[0] = makeJoinedFilm(rs);
+            }
+            int genreId = rs.getInt("genre_id");
+            if (!rs.wasNull()) {
+                current[0].addGenre(referenceDataCache.findGenreById(genreId));
+            }
+        });
+        if (current[0] != null) {
+            consumer.accept(current[0]);
+        }
     }
 
     @Override
+    @Transactional
     public Film create(Film film) throws ValidationException {
         String sql = "INSERT INTO films (name, description, release_date, duration, mpa_id) " +
                 "VALUES (?, ?, ?, ?, ?)";
 
-        jdbcTemplate.update(sql,
-                film.getName(),
-                film.getDescription(),
-                film.getReleaseDate(),
-                film.getDuration(),
-                film.getMpa().getId());
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(sql, new String[]{"film_id"});
+            ps.setString(1, film.getName());
+            ps.setString(2, film.getDescription());
+            ps.setObject(3, film.getReleaseDate());
+            ps.setInt(4, film.getDuration());
+            ps.setInt(5, film.getMpa().getId());
+            return ps;
+        }, keyHolder);
+        film.setId(keyHolder.getKey().intValue());
 
-        if (film.getGenres() != null) {
-            insertFilmGenres(film);
-        }
-        film.setGenres(findGenresByFilmId(film.getId()));
-        return film;
+        SortedSet<Integer> genreIds = genreIdsOf(film);
+        insertFilmGenres(film.getId(), genreIds);
+        int filmId = film.getId();
+        int year = film.getReleaseDate().getYear();
+        String name = film.getName();
+        String description = film.getDescription();
+        TransactionCallbacks.afterCommit(() -> {
+            popularityIndex.addFilm(filmId, year, genreIds);
+            searchIndex.indexFilm(filmId, name, description);
+        });
+        return filmHydrator.hydrate(film, genreIds);
     }
 
-    private void insertFilmGenres(Film film) {
-        String sql = "MERGE INTO  film_genres (film_id, genre_id) VALUES (?, ?)";
-        for (Genre genre : film.getGenres()) {
-            jdbcTemplate.update(sql, film.getId(), genre.getId());
+    @Override
+    @Transactional
+    public List<Film> createAll(List<Film> films) {
+        String sql = "INSERT INTO films (name, description, release_date, duration, mpa_id) " +
+                "VALUES (?, ?, ?, ?, ?)";
+        jdbcTemplate.execute(con -> con.prepareStatement(sql, new String[]{"film_id"}),
+                (PreparedStatementCallback<Void>) ps -> {
+                    for (Film film : films) {
+                        ps.setString(1, film.getName());
+                        ps.setString(2, film.getDescription());
+                        ps.setObject(3, film.getReleaseDate());
+                        ps.setInt(4, film.getDuration());
+                        ps.setInt(5, film.getMpa().getId());
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                    try (ResultSet keys = ps.getGeneratedKeys()) {
+                        for (int i = 0; keys.next(); i++) {
+                            films.get(i).setId(keys.getInt(1));
+                        }
+                    }
+                    return null;
+                });
+
+        List<SortedSet<Integer>> genreIds = new ArrayList<>(films.size());
+        List<int[]> filmGenres = new ArrayList<>();
+        for (Film film : films) {
+            SortedSet<Integer> ids = genreIdsOf(film);
+            genreIds.add(ids);
+            for (int genreId : ids) {
+                filmGenres.add(new int[]{film.getId(), genreId});
+            }
+        }
+        if (!filmGenres.isEmpty()) {
+            String genresSql = "INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)";
+            jdbcTemplate.batchUpdate(genresSql, filmGenres, filmGenres.size(), (ps, filmGenre) -> {
+                ps.setInt(1, filmGenre[0]);
+                ps.setInt(2, filmGenre[1]);
+            });
+        }
+
+        for (int i = 0; i < films.size(); i++) {
+            filmHydrator.hydrate(films.get(i), genreIds.get(i));
         }
+        // Список фильмов принадлежит вызывающему, поэтому для индексов после коммита копируются нужные поля.
+        int[] filmIds = films.stream().mapToInt(Film::getId).toArray();
+        int[] years = films.stream().mapToInt(film -> film.getReleaseDate().getYear()).toArray();
+        String[] names = films.stream().map(Film::getName).toArray(String[]::new);
+        String[] descriptions = films.stream().map(Film::getDescription).toArray(String[]::new);
+        TransactionCallbacks.afterCommit(() -> {
+            for (int i = 0; i < filmIds.length; i++) {
+                popularityIndex.addFilm(filmIds[i], years[i], genreIds.get(i));
+                searchIndex.indexFilm(filmIds[i], names[i], descriptions[i]);
+            }
+        });
+        return films;
     }
 
     @Override
+    @Transactional
     public Film update(Film film) throws ValidationException, FilmNotFoundException {
         String sql = "UPDATE films SET name = ?, description = ?, release_date = ?, duration = ?, mpa_id = ? " +
                 "WHERE film_id = ?";
 
-        jdbcTemplate.update(sql,
+        int updated = jdbcTemplate.update(sql,
                 film.getName(),
                 film.getDescription(),
                 film.getReleaseDate(),
                 film.getDuration(),
                 film.getMpa().getId(),
                 film.getId());
+        if (updated == 0) {
+            throw new FilmNotFoundException("Фильма с id =" + film.getId() + ", не найдено.");
+        }
 
-        if (film.getGenres() != null) updateFilmGenres(film);
-        film.setGenres(findGenresByFilmId(film.getId()));
+        SortedSet<Integer> genreIds;
+        if (film.getGenres() == null) {
+            filmHydrator.hydrate(List.of(film));
+            genreIds = genreIdsOf(film);
+        } else {
+            genreIds = genreIdsOf(film);
+            updateFilmGenres(film.getId(), genreIds);
+            filmHydrator.hydrate(film, genreIds);
+        }
+        // Жанры и год могли измениться, поэтому фильм переносится между срезами индекса популярности.
+        int filmId = film.getId();
+        int year = film.getReleaseDate().getYear();
+        String name = film.getName();
+        String description = film.getDescription();
+        TransactionCallbacks.afterCommit(() -> {
+            popularityIndex.updateFilm(filmId, year, genreIds);
+            searchIndex.indexFilm(filmId, name, description);
+        });
         return film;
     }
 
-    private void updateFilmGenres(Film film) {
-        cleanOldFilmGenresRecords(film);
-        insertFilmGenres(film);
+    private SortedSet<Integer> genreIdsOf(Film film) {
+        SortedSet<Integer> genreIds = new TreeSet<>();
+        if (film.getGenres() != null) {
+            for (Genre genre : film.getGenres()) {
+                genreIds.add(genre.getId());
+            }
+        }
+        return genreIds;
+    }
+
+    private void updateFilmGenres(int filmId, Set<Integer> genreIds) {
+        // Пишется только разница между сохраненным и новым набором жанров.
+        String sql = "SELECT genre_id FROM film_genres WHERE film_id = ?";
+        Set<Integer> oldGenreIds = new HashSet<>(jdbcTemplate.queryForList(sql, Integer.class, filmId));
+
+        List<Integer> removed = new ArrayList<>();
+        for (int genreId : oldGenreIds) {
+            if (!genreIds.contains(genreId)) {
+                removed.add(genreId);
+            }
+        }
+        List<Integer> added = new ArrayList<>();
+        for (int genreId : genreIds) {
+            if (!oldGenreIds.contains(genreId)) {
+                added.add(genreId);
+            }
+        }
+        deleteFilmGenres(filmId, removed);
+        insertFilmGenres(filmId, added);
+    }
+
+    private void insertFilmGenres(int filmId, Collection<Integer> genreIds) {
+        if (genreIds.isEmpty()) {
+            return;
+        }
+        String sql = "INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)";
+        jdbcTemplate.batchUpdate(sql, genreIds, genreIds.size(), (ps, genreId) -> {
+            ps.setInt(1, filmId);
+            ps.setInt(2, genreId);
+        });
     }
 
-    public void cleanOldFilmGenresRecords(Film film) {
-        String sqlQuery = "DELETE FROM film_genres WHERE film_id = ?";
-        jdbcTemplate.update(sqlQuery, film.getId());
+    private void deleteFilmGenres(int filmId, Collection<Integer> genreIds) {
+        if (genreIds.isEmpty()) {
+            return;
+        }
+        String sql = "DELETE FROM film_genres WHERE film_id = ? AND genre_id = ?";
+        jdbcTemplate.batchUpdate(sql, genreIds, genreIds.size(), (ps, genreId) -> {
+            ps.setInt(1, filmId);
+            ps.setInt(2, genreId);
+        });
     }
 
     @Override
@@ -93,9 +291,35 @@ public class FilmDbStorage implements FilmStorage {
         if (film == null) {
             throw new FilmNotFoundException(String.format("Пользователь c id = %d, не найден", filmId));
         }
+        filmHydrator.hydrate(List.of(film));
         return Optional.of(film);
     }
 
+    @Override
+    public List<Film> findFilmsByIds(List<Integer> filmIds) {
+        if (filmIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String sql = "SELECT * FROM films WHERE film_id IN (:ids)";
+        Map<Integer, Film> filmsById = new HashMap<>();
+        for (int from = 0; from < filmIds.size(); from += IN_CHUNK_SIZE) {
+            List<Integer> chunk = filmIds.subList(from, Math.min(from + IN_CHUNK_SIZE, filmIds.size()));
+            namedJdbcTemplate.query(sql, new MapSqlParameterSource("ids", chunk), rs -> {
+                Film film = makeFilm(rs, 0);
+                filmsById.put(film.getId(), film);
+            });
+        }
+
+        List<Film> films = new ArrayList<>(filmsById.size());
+        for (Integer filmId : filmIds) {
+            Film film = filmsById.get(filmId);
+            if (film != null) {
+                films.add(film);
+            }
+        }
+        return filmHydrator.hydrate(films);
+    }
+
     @Override
     public boolean containsFilm(int filmId) {
         String sql = "SELECT COUNT(*) FROM films WHERE film_id = ?";
@@ -104,66 +328,40 @@ public class FilmDbStorage implements FilmStorage {
     }
 
     private Film makeFilm(ResultSet rs, int rowNum) throws SQLException {
-        int id = rs.getInt("film_id");
-        String name = rs.getString("name");
-        String description = rs.getString("description");
-        LocalDate releaseDate = rs.getDate("release_date").toLocalDate();
-        int duration = rs.getInt("duration");
-
-        Mpa mpa = findMpaById(rs.getInt("mpa_id"));
-        List<Genre> genres = findGenresByFilmId(id);
+        int mpaId = rs.getInt("mpa_id");
+        Mpa mpa = rs.wasNull() ? null : Mpa.builder().id(mpaId).build();
 
         return Film.builder()
-                .id(id)
-                .name(name)
-                .description(description)
-                .releaseDate(releaseDate)
-                .duration(duration)
+                .id(rs.getInt("film_id"))
+                .name(rs.getString("name"))
+                .description(rs.getString("description"))
+                .releaseDate(rs.getDate("release_date").toLocalDate())
+                .duration(rs.getInt("duration"))
                 .mpa(mpa)
-                .genres(genres)
                 .build();
     }
 
-    private Mpa findMpaById(int mpaId) {
-        String sql = "SELECT * FROM mpa WHERE mpa_id = ?";
-        return jdbcTemplate.queryForObject(sql, this::makeMpa, mpaId);
-    }
-
-    private List<Genre> findGenresByFilmId(int filmId) {
-        String sql = "SELECT DISTINCT g.genre_id, g.name FROM film_genres AS fg" +
-                " JOIN genres AS g ON fg.genre_id = g.genre_id WHERE fg.film_id = ?";
-        return jdbcTemplate.query(sql, (rs, rowNum) -> makeGenre(rs), filmId);
+    private Film makeJoinedFilm(ResultSet rs) throws SQLException {
+        Film film = makeFilm(rs, 0);
+        if (film.getMpa() != null) {
+            film.setMpa(referenceDataCache.findMpaById(film.getMpa().getId()));
+        }
+        film.setGenres(new ArrayList<>());
+        return film;
     }
 
-    private Mpa makeMpa(ResultSet rs, int rowNum) throws SQLException {
-        int id = rs.getInt("mpa_id");
-        String name = rs.getString("name");
-        String description = rs.getString("description");
-        return Mpa.builder()
-                .id(id)
-                .name(name)
-                .description(description)
-                .build();
+    @Override
+    public Collection<Film> findTopFilms(int count) throws FilmNotFoundException {
+        return findTopFilms(count, null, null);
     }
 
-    private Genre makeGenre(ResultSet rs) throws SQLException {
-        int id = rs.getInt("genre_id");
-        String name = rs.getString("name");
-
-        return Genre.builder()
-                .id(id)
-                .name(name)
-                .build();
+    @Override
+    public Collection<Film> findTopFilms(int count, Integer genreId, Integer year) {
+        return findFilmsByIds(popularityIndex.findTopFilmIds(count, genreId, year));
     }
 
-    public Collection<Film> findTopFilms(int count) throws FilmNotFoundException {
-        String sql = "SELECT f.*, COUNT(l.film_id) as likes_count " +
-                "FROM films f " +
-                "LEFT JOIN likes l ON f.film_id = l.film_id " +
-                "GROUP BY f.film_id " +
-                "ORDER BY likes_count DESC " +
-                "LIMIT ?";
-
-        return jdbcTemplate.query(sql, this::makeFilm, count);
+    @Override
+    public Collection<Film> searchFilms(String query, Set<FilmSearchField> fields, int count) {
+        return findFilmsByIds(searchIndex.search(query, fields, count));
     }
 }
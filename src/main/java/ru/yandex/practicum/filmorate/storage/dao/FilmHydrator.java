@@ -0,0 +1,97 @@
+package ru.yandex.practicum.filmorate.storage.dao;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.cache.ReferenceDataCache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Component
+public class FilmHydrator {
+    private static final int IN_CHUNK_SIZE = 1000;
+
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final ReferenceDataCache referenceDataCache;
+
+    public FilmHydrator(JdbcTemplate jdbcTemplate, ReferenceDataCache referenceDataCache) {
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.referenceDataCache = referenceDataCache;
+    }
+
+    public List<Film> hydrate(List<Film> films) {
+        if (films.isEmpty()) {
+            return films;
+        }
+        Map<Integer, Film> filmsById = new HashMap<>();
+        int minId = Integer.MAX_VALUE;
+        int maxId = Integer.MIN_VALUE;
+        for (Film film : films) {
+            filmsById.put(film.getId(), film);
+            film.setGenres(new ArrayList<>());
+            if (film.getMpa() != null) {
+                film.setMpa(referenceDataCache.findMpaById(film.getMpa().getId()));
+            }
+            minId = Math.min(minId, film.getId());
+            maxId = Math.max(maxId, film.getId());
+        }
+
+        // Страницы и полная выборка идут подряд по id, поэтому для них достаточно диапазона,
+        // а разреженные наборы (топ фильмов) добираются через IN.
+        if ((long) maxId - minId + 1 <= 2L * films.size()) {
+            loadGenresInRange(filmsById, minId, maxId);
+        } else {
+            loadGenresByIds(filmsById);
+        }
+        return films;
+    }
+
+    public Film hydrate(Film film, Collection<Integer> genreIds) {
+        if (film.getMpa() != null) {
+            film.setMpa(referenceDataCache.findMpaById(film.getMpa().getId()));
+        }
+        List<Genre> genres = new ArrayList<>(genreIds.size());
+        for (int genreId : genreIds) {
+            genres.add(referenceDataCache.findGenreById(genreId));
+        }
+        film.setGenres(genres);
+        return film;
+    }
+
+    private void loadGenresInRange(Map<Integer, Film> filmsById, int minId, int maxId) {
+        String sql = "SELECT film_id, genre_id FROM film_genres" +
+                " WHERE film_id BETWEEN :minId AND :maxId ORDER BY film_id, genre_id";
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("minId", minId)
+                .addValue("maxId", maxId);
+        namedJdbcTemplate.query(sql, params, rs -> {
+            addGenre(filmsById, rs.getInt("film_id"), rs.getInt("genre_id"));
+        });
+    }
+
+    private void loadGenresByIds(Map<Integer, Film> filmsById) {
+        String sql = "SELECT film_id, genre_id FROM film_genres" +
+                " WHERE film_id IN (:ids) ORDER BY film_id, genre_id";
+        List<Integer> ids = new ArrayList<>(filmsById.keySet());
+        for (int from = 0; from < ids.size(); from += IN_CHUNK_SIZE) {
+            List<Integer> chunk = ids.subList(from, Math.min(from + IN_CHUNK_SIZE, ids.size()));
+            namedJdbcTemplate.query(sql, new MapSqlParameterSource("ids", chunk), rs -> {
+                addGenre(filmsById, rs.getInt("film_id"), rs.getInt("genre_id"));
+            });
+        }
+    }
+
+    private void addGenre(Map<Integer, Film> filmsById, int filmId, int genreId) {
+        Film film = filmsById.get(filmId);
+        if (film != null) {
+            film.addGenre(referenceDataCache.findGenreById(genreId));
+        }
+    }
+}
@@ -2,26 +2,46 @@ package ru.yandex.practicum.filmorate.storage.dao;
 
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCallback;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.exception.UserNotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
+import ru.yandex.practicum.filmorate.storage.index.FriendGraphIndex;
 
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 @Component
 @Qualifier("UserDbStorage")
 public class UserDbStorage implements UserStorage {
+    private static final int STREAM_FETCH_SIZE = 1000;
+    private static final int IN_CHUNK_SIZE = 1000;
+
     private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final FriendGraphIndex friendGraphIndex;
 
-    public UserDbStorage(JdbcTemplate jdbcTemplate) {
+    public UserDbStorage(JdbcTemplate jdbcTemplate, FriendGraphIndex friendGraphIndex) {
         this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.friendGraphIndex = friendGraphIndex;
     }
 
     @Override
@@ -30,17 +50,70 @@ public class UserDbStorage implements UserStorage {
         return jdbcTemplate.query(sql, this::makeUser);
     }
 
+    @Override
+    public List<User> findPage(int afterId, int limit) {
+        String sql = "SELECT * FROM users WHERE user_id > ? ORDER BY user_id LIMIT ?";
+        return jdbcTemplate.query(sql, this::makeUser, afterId, limit);
+    }
+
+    @Override
+    public void streamAll(Consumer<User> consumer) {
+        String sql = "SELECT * FROM users ORDER BY user_id";
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(STREAM_FETCH_SIZE);
+            return ps;
+        }, (RowCallbackHandler) rs -> consumer.accept(makeUser(rs, rs.getRow())));
+    }
+
     @Override
     public User create(User user) throws ValidationException {
         String sql = "INSERT INTO users (email, login, name, birthday) VALUES ( ?, ?, ?, ?)";
-        jdbcTemplate.update(sql, user.getEmail(), user.getLogin(), user.getName(), user.getBirthday());
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(sql, new String[]{"user_id"});
+            ps.setString(1, user.getEmail());
+            ps.setString(2, user.getLogin());
+            ps.setString(3, user.getName());
+            ps.setObject(4, user.getBirthday());
+            return ps;
+        }, keyHolder);
+        user.setId(keyHolder.getKey().intValue());
         return user;
     }
 
+    @Override
+    @Transactional
+    public List<User> createAll(List<User> users) {
+        String sql = "INSERT INTO users (email, login, name, birthday) VALUES (?, ?, ?, ?)";
+        jdbcTemplate.execute(con -> con.prepareStatement(sql, new String[]{"user_id"}),
+                (PreparedStatementCallback<Void>) ps -> {
+                    for (User user : users) {
+                        ps.setString(1, user.getEmail());
+                        ps.setString(2, user.getLogin());
+                        ps.setString(3, user.getName());
+                        ps.setObject(4, user.getBirthday());
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                    try (ResultSet keys = ps.getGeneratedKeys()) {
+                        for (int i = 0; keys.next(); i++) {
+                            users.get(i).setId(keys.getInt(1));
+                        }
+                    }
+                    return null;
+                });
+        return users;
+    }
+
     @Override
     public User update(User user) throws ValidationException, UserNotFoundException {
         String sql = "UPDATE users SET email = ?, login = ?, name = ?, birthday = ? WHERE user_id = ?";
-        jdbcTemplate.update(sql, user.getEmail(), user.getLogin(), user.getName(), user.getBirthday(), user.getId());
+        int updated = jdbcTemplate.update(sql,
+                user.getEmail(), user.getLogin(), user.getName(), user.getBirthday(), user.getId());
+        if (updated == 0) {
+            throw new UserNotFoundException("Пользователя с id = " + user.getId() + ", не найдено.");
+        }
         return user;
     }
 
@@ -54,6 +127,31 @@ public class UserDbStorage implements UserStorage {
         return Optional.of(user);
     }
 
+    @Override
+    public List<User> findUsersByIds(List<Integer> userIds) {
+        if (userIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String sql = "SELECT * FROM users WHERE user_id IN (:ids)";
+        Map<Integer, User> usersById = new HashMap<>();
+        for (int from = 0; from < userIds.size(); from += IN_CHUNK_SIZE) {
+            List<Integer> chunk = userIds.subList(from, Math.min(from + IN_CHUNK_SIZE, userIds.size()));
+            namedJdbcTemplate.query(sql, new MapSqlParameterSource("ids", chunk), rs -> {
+                User user = makeUser(rs, 0);
+                usersById.put(user.getId(), user);
+            });
+        }
+
+        List<User> users = new ArrayList<>(usersById.size());
+        for (Integer userId : userIds) {
+            User user = usersById.get(userId);
+            if (user != null) {
+                users.add(user);
+            }
+        }
+        return users;
+    }
+
     @Override
     public boolean containsUser(int userId) {
         String sql = "SELECT COUNT(*) FROM users WHERE user_id = ?";
@@ -79,9 +177,6 @@ public class UserDbStorage implements UserStorage {
 
     @Override
     public Collection<User> getCommonFriends(int userId, int friendId) throws UserNotFoundException {
-        String sql = "SELECT u.* FROM users u" +
-                " JOIN user_friends uf1 ON u.user_id = uf1.friend_id AND uf1.user_id = ?" +
-                " JOIN user_friends uf2 ON u.user_id = uf2.friend_id AND uf2.user_id = ?";
-        return jdbcTemplate.query(sql, this::makeUser, userId, friendId);
+        return findUsersByIds(friendGraphIndex.commonFriendIds(userId, friendId));
     }
 }
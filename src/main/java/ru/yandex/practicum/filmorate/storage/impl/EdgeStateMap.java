@@ -0,0 +1,120 @@
+package ru.yandex.practicum.filmorate.storage.impl;
+
+import java.util.Arrays;
+
+// Состояния пар в очереди отложенной записи без упаковки: открытая адресация по ключу пары.
+// Ключ 0 отмечает свободную ячейку, у настоящей пары оба id положительны. Отдельные пары не удаляются,
+// очередь очищает карту целиком после записи пачки. Класс не потокобезопасен.
+final class EdgeStateMap {
+    static final int ABSENT = -1;
+    static final int STORED = 1;
+    static final int PRESENT = 2;
+
+    private static final long FREE = 0;
+
+    private long[] keys;
+    private byte[] states;
+    private int mask;
+    private int size;
+
+    EdgeStateMap(int expectedSize) {
+        allocate(Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1);
+    }
+
+    static int state(boolean stored, boolean present) {
+        return (stored ? STORED : 0) | (present ? PRESENT : 0);
+    }
+
+    static boolean isStored(int state) {
+        return (state & STORED) != 0;
+    }
+
+    static boolean isPresent(int state) {
+        return (state & PRESENT) != 0;
+    }
+
+    static int first(long key) {
+        return (int) (key >>> 32);
+    }
+
+    static int second(long key) {
+        return (int) key;
+    }
+
+    int get(long key) {
+        int slot = slotOf(key);
+        return keys[slot] == FREE ? ABSENT : states[slot];
+    }
+
+    void put(long key, int state) {
+        int slot = slotOf(key);
+        if (keys[slot] == FREE) {
+            keys[slot] = key;
+            size++;
+            if (size * 4 > keys.length * 3) {
+                states[slot] = (byte) state;
+                rehash(keys.length * 2);
+                return;
+            }
+        }
+        states[slot] = (byte) state;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    // Емкость сохраняется: следующая пачка наберется без перераспределения массивов.
+    void clear() {
+        Arrays.fill(keys, FREE);
+        size = 0;
+    }
+
+    void forEach(EdgeStateVisitor visitor) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != FREE) {
+                visitor.visit(keys[slot], states[slot]);
+            }
+        }
+    }
+
+    private int slotOf(long key) {
+        int slot = mix(key) & mask;
+        while (keys[slot] != FREE && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        byte[] oldStates = states;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE) {
+                int slot = slotOf(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                states[slot] = oldStates[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        states = new byte[capacity];
+        mask = capacity - 1;
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    interface EdgeStateVisitor {
+        void visit(long key, int state);
+    }
+}
@@ -0,0 +1,49 @@
+package ru.yandex.practicum.filmorate.storage.impl;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.enums.FriendshipStatus;
+import ru.yandex.practicum.filmorate.storage.impl.WriteBehindQueue.PendingEdge;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Пачка заявок в друзья: в паре first - пользователь, second - друг. После вставок и удалений статус обеих строк
+// каждой затронутой пары пересчитывается по встречной заявке, как в миграции V4. Пачки пишет один поток очереди,
+// поэтому блокировать строки пользователей, как FriendshipDaoImpl, не нужно.
+final class FriendshipBatchWriter implements WriteBehindQueue.BatchWriter {
+    private static final String STATUS_SQL = "UPDATE user_friends uf SET friendship_status_id = CASE WHEN EXISTS " +
+            "(SELECT 1 FROM user_friends r WHERE r.user_id = uf.friend_id AND r.friend_id = uf.user_id) " +
+            "THEN ? ELSE ? END " +
+            "WHERE (uf.user_id = ? AND uf.friend_id = ?) OR (uf.user_id = ? AND uf.friend_id = ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    FriendshipBatchWriter(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void write(List<PendingEdge> added, List<PendingEdge> removed) {
+        jdbcTemplate.batchUpdate("DELETE FROM user_friends WHERE user_id = ? AND friend_id = ?",
+                removed, removed.size(), (ps, friendship) -> {
+                    ps.setInt(1, friendship.first);
+                    ps.setInt(2, friendship.second);
+                });
+        jdbcTemplate.batchUpdate("INSERT INTO user_friends (user_id, friend_id, friendship_status_id) VALUES (?, ?, ?)",
+                added, added.size(), (ps, friendship) -> {
+                    ps.setInt(1, friendship.first);
+                    ps.setInt(2, friendship.second);
+                    ps.setInt(3, FriendshipStatus.PENDING.getId());
+                });
+        List<PendingEdge> changed = new ArrayList<>(added);
+        changed.addAll(removed);
+        jdbcTemplate.batchUpdate(STATUS_SQL, changed, changed.size(), (ps, friendship) -> {
+            ps.setInt(1, FriendshipStatus.CONFIRMED.getId());
+            ps.setInt(2, FriendshipStatus.PENDING.getId());
+            ps.setInt(3, friendship.first);
+            ps.setInt(4, friendship.second);
+            ps.setInt(5, friendship.second);
+            ps.setInt(6, friendship.first);
+        });
+    }
+}
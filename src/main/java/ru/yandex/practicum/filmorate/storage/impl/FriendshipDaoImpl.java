@@ -1,9 +1,16 @@
 package ru.yandex.practicum.filmorate.storage.impl;
 
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.enums.FriendshipStatus;
+import ru.yandex.practicum.filmorate.exception.UserNotFoundException;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.PairLocks;
+import ru.yandex.practicum.filmorate.storage.TransactionCallbacks;
 import ru.yandex.practicum.filmorate.storage.dao.FriendshipDao;
+import ru.yandex.practicum.filmorate.storage.index.FriendGraphIndex;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -13,24 +20,45 @@ import java.util.List;
 @Component
 public class FriendshipDaoImpl implements FriendshipDao {
     private final JdbcTemplate jdbcTemplate;
+    private final FriendGraphIndex friendGraphIndex;
+    private final PairLocks pairLocks = new PairLocks(256);
 
-    public FriendshipDaoImpl(JdbcTemplate jdbcTemplate) {
+    public FriendshipDaoImpl(JdbcTemplate jdbcTemplate, FriendGraphIndex friendGraphIndex) {
         this.jdbcTemplate = jdbcTemplate;
+        this.friendGraphIndex = friendGraphIndex;
     }
 
     @Override
+    @Transactional
     public void addFriend(int userId, int friendId) {
-        String sql = "INSERT INTO user_friends (user_id, friend_id, friendship_status_id) " +
-                "VALUES (?, ?, ?)";
-
-        int statusId = friendshipChecker(userId, friendId);
-        jdbcTemplate.update(sql, userId, friendId, statusId);
+        pairLocks.lockUntilCompletion(userId, friendId);
+        lockUsers(userId, friendId);
+        // Встречная заявка ищется по первичному ключу; если она есть, подтверждаются обе строки в одной транзакции.
+        String confirmSql = "UPDATE user_friends SET friendship_status_id = ? WHERE user_id = ? AND friend_id = ?";
+        FriendshipStatus status = jdbcTemplate.update(confirmSql, FriendshipStatus.CONFIRMED.getId(), friendId, userId) > 0
+                ? FriendshipStatus.CONFIRMED
+                : FriendshipStatus.PENDING;
+        String sql = "INSERT INTO user_friends (user_id, friend_id, friendship_status_id) VALUES (?, ?, ?)";
+        try {
+            jdbcTemplate.update(sql, userId, friendId, status.getId());
+        } catch (DuplicateKeyException e) {
+            return;
+        }
+        TransactionCallbacks.afterCommit(() -> friendGraphIndex.addFriend(userId, friendId));
     }
 
     @Override
+    @Transactional
     public void deleteFriend(int userId, int friendId) {
+        pairLocks.lockUntilCompletion(userId, friendId);
+        lockUsers(userId, friendId);
         String sql = "DELETE FROM user_friends WHERE user_id = ? AND friend_id = ?";
-        jdbcTemplate.update(sql, userId, friendId);
+        if (jdbcTemplate.update(sql, userId, friendId) > 0) {
+            // Встречная заявка остается, но снова ждет подтверждения.
+            String resetSql = "UPDATE user_friends SET friendship_status_id = ? WHERE user_id = ? AND friend_id = ?";
+            jdbcTemplate.update(resetSql, FriendshipStatus.PENDING.getId(), friendId, userId);
+            TransactionCallbacks.afterCommit(() -> friendGraphIndex.removeFriend(userId, friendId));
+        }
     }
 
     @Override
@@ -45,14 +73,16 @@ public class FriendshipDaoImpl implements FriendshipDao {
         return rs.getInt("friend_id");
     }
 
-    private int friendshipChecker(int userId, int friendId) {
-        List<User> result = getFriends(friendId);
-        for (User user : result) {
-            if (user.getId() == userId) {
-                return 2;
+    // Блокирует строки обоих пользователей в порядке id: встречные заявки одной пары выполняются по очереди
+    // и не могут обе остаться неподтвержденными.
+    private void lockUsers(int userId, int friendId) throws UserNotFoundException {
+        String sql = "SELECT user_id FROM users WHERE user_id IN (?, ?) ORDER BY user_id FOR UPDATE";
+        List<Integer> found = jdbcTemplate.queryForList(sql, Integer.class, userId, friendId);
+        for (int id : new int[]{userId, friendId}) {
+            if (!found.contains(id)) {
+                throw new UserNotFoundException("Пользователя с id: " + id + ", не существует.");
             }
         }
-        return 1;
     }
 
     private User makeUser(ResultSet rs, int rowNum) throws SQLException {
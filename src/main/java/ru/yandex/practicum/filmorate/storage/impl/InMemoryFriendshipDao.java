@@ -0,0 +1,195 @@
+package ru.yandex.practicum.filmorate.storage.impl;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.exception.UserNotFoundException;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+import ru.yandex.practicum.filmorate.storage.dao.FriendshipDao;
+import ru.yandex.practicum.filmorate.storage.index.FriendGraphIndex;
+import ru.yandex.practicum.filmorate.storage.index.IntSetMultimap;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Дружба читается только из памяти: таблица user_friends загружается один раз при старте, заявки пишутся
+// в нее пачками через очередь отложенной записи вместе с пересчетом friendship_status_id.
+// В памяти хранится только направленное ребро; подтвержденной дружба считается, когда есть и встречное.
+@Slf4j
+@Primary
+@Component
+@ConditionalOnProperty(name = "filmorate.friends.write-mode", havingValue = "in-memory")
+public class InMemoryFriendshipDao implements FriendshipDao {
+    private static final String LOAD_FRIENDS_SQL = "SELECT user_id, friend_id FROM user_friends " +
+            "ORDER BY user_id, friend_id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final UserStorage userStorage;
+    private final FriendGraphIndex friendGraphIndex;
+    private final IntSetMultimap friendsByUser = new IntSetMultimap();
+    private final BitSet knownUsers = new BitSet();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final WriteBehindQueue queue;
+
+    public InMemoryFriendshipDao(JdbcTemplate jdbcTemplate,
+                                 TransactionTemplate transactionTemplate,
+                                 @Qualifier("CachedUserStorage") UserStorage userStorage,
+                                 FriendGraphIndex friendGraphIndex,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${filmorate.friends.write-behind.batch-size:500}") int batchSize,
+                                 @Value("${filmorate.friends.write-behind.capacity:10000}") int capacity,
+                                 @Value("${filmorate.friends.write-behind.flush-interval:200ms}") Duration flushInterval) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.userStorage = userStorage;
+        this.friendGraphIndex = friendGraphIndex;
+        this.queue = new WriteBehindQueue("friends", transactionTemplate, meterRegistry,
+                "Заявки в друзья, ожидающие записи в базу", batchSize, capacity, flushInterval,
+                new FriendshipBatchWriter(jdbcTemplate), this::isFriend, this::applyFriend);
+    }
+
+    @PostConstruct
+    public void load() {
+        // Накопленные изменения записываются до чтения, иначе перезагрузка потеряла бы их.
+        queue.flush();
+        lock.writeLock().lock();
+        try {
+            friendsByUser.clear();
+            jdbcTemplate.query(LOAD_FRIENDS_SQL, rs -> {
+                friendsByUser.put(rs.getInt("user_id"), rs.getInt("friend_id"));
+            });
+            log.info("Связи дружбы загружены в память: {}.", friendsByUser.valueCount());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void addFriend(int userId, int friendId) {
+        checkUsers(userId, friendId);
+        queue.change(userId, friendId, true);
+    }
+
+    @Override
+    public void deleteFriend(int userId, int friendId) {
+        checkUsers(userId, friendId);
+        queue.change(userId, friendId, false);
+    }
+
+    @Override
+    public List<User> getFriends(int userId) {
+        int[] friendIds;
+        lock.readLock().lock();
+        try {
+            friendIds = friendsByUser.values(userId);
+        } finally {
+            lock.readLock().unlock();
+        }
+        // Кэш пользователей ключуется Integer, поэтому на чтении id упаковываются; путь записи от этого свободен.
+        List<Integer> ids = new ArrayList<>(friendIds.length);
+        for (int friendId : friendIds) {
+            ids.add(friendId);
+        }
+        return userStorage.findUsersByIds(ids);
+    }
+
+    public boolean isConfirmed(int userId, int friendId) {
+        lock.readLock().lock();
+        try {
+            return friendsByUser.contains(userId, friendId) && friendsByUser.contains(friendId, userId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int pendingCount() {
+        return queue.pendingCount();
+    }
+
+    public void flush() {
+        queue.flush();
+    }
+
+    @PreDestroy
+    public void drain() throws InterruptedException {
+        queue.drain();
+        log.info("Очередь заявок в друзья записана перед остановкой.");
+    }
+
+    public long friendshipsTotal() {
+        lock.readLock().lock();
+        try {
+            return friendsByUser.valueCount();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Память совпадает с базой для всех пар, которых нет в очереди, поэтому состояние в базе берется отсюда.
+    private boolean isFriend(int userId, int friendId) {
+        lock.readLock().lock();
+        try {
+            return friendsByUser.contains(userId, friendId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void applyFriend(int userId, int friendId, boolean added) {
+        lock.writeLock().lock();
+        try {
+            if (added) {
+                friendsByUser.put(userId, friendId);
+            } else {
+                friendsByUser.remove(userId, friendId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (added) {
+            friendGraphIndex.addFriend(userId, friendId);
+        } else {
+            friendGraphIndex.removeFriend(userId, friendId);
+        }
+    }
+
+    private void checkUsers(int userId, int friendId) throws UserNotFoundException {
+        boolean userKnown;
+        boolean friendKnown;
+        lock.readLock().lock();
+        try {
+            userKnown = userId > 0 && knownUsers.get(userId);
+            friendKnown = friendId > 0 && knownUsers.get(friendId);
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (userKnown && friendKnown) {
+            return;
+        }
+        for (int id : new int[]{userId, friendId}) {
+            if (id <= 0 || !userStorage.containsUser(id)) {
+                throw new UserNotFoundException("Пользователя с id: " + id + ", не существует.");
+            }
+        }
+        // Пользователи не удаляются, поэтому однажды найденный id остается верным.
+        lock.writeLock().lock();
+        try {
+            knownUsers.set(userId);
+            knownUsers.set(friendId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package ru.yandex.practicum.filmorate.storage.impl;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.exception.FilmNotFoundException;
+import ru.yandex.practicum.filmorate.exception.UserNotFoundException;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+import ru.yandex.practicum.filmorate.storage.dao.LikesDao;
+import ru.yandex.practicum.filmorate.storage.index.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.storage.index.LikeMatrix;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.BitSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Лайки читаются и проверяются только в памяти: ребра берутся из матрицы лайков, которая и так держит всю
+// таблицу likes, изменения пишутся в likes и films.likes_count пачками через ту же очередь, что и в режиме
+// write-behind. Матрица, множества найденных id, очередь и индекс популярности хранят данные в примитивных
+// массивах, поэтому лайк на пути запроса ничего не упаковывает; обращение к кэшам и базе нужно лишь при первой
+// встрече с id. Память выделяется при росте массивов и потоком записи при разборе пачки.
+@Slf4j
+@Primary
+@Component
+@ConditionalOnProperty(name = "filmorate.likes.write-mode", havingValue = "in-memory")
+public class InMemoryLikesDao implements LikesDao {
+    private final UserStorage userStorage;
+    private final FilmPopularityIndex popularityIndex;
+    private final LikeMatrix likeMatrix;
+    private final BitSet knownFilms = new BitSet();
+    private final BitSet knownUsers = new BitSet();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final WriteBehindQueue queue;
+
+    public InMemoryLikesDao(JdbcTemplate jdbcTemplate,
+                            TransactionTemplate transactionTemplate,
+                            @Qualifier("CachedUserStorage") UserStorage userStorage,
+                            FilmPopularityIndex popularityIndex,
+                            LikeMatrix likeMatrix,
+                            MeterRegistry meterRegistry,
+                            @Value("${filmorate.likes.write-behind.batch-size:500}") int batchSize,
+                            @Value("${filmorate.likes.write-behind.capacity:10000}") int capacity,
+                            @Value("${filmorate.likes.write-behind.flush-interval:200ms}") Duration flushInterval) {
+        this.userStorage = userStorage;
+        this.popularityIndex = popularityIndex;
+        this.likeMatrix = likeMatrix;
+        this.queue = new WriteBehindQueue("likes", transactionTemplate, meterRegistry,
+                "Лайки, ожидающие записи в базу", batchSize, capacity, flushInterval,
+                new LikesBatchWriter(jdbcTemplate), this::isLiked, this::applyLike);
+    }
+
+    @PostConstruct
+    public void load() {
+        // Накопленные изменения записываются до чтения, иначе перезагрузка потеряла бы их.
+        queue.flush();
+        likeMatrix.rebuild();
+        log.info("Лайки загружены в память: {}.", likeMatrix.likesTotal());
+    }
+
+    @Override
+    public void addLike(int userId, int filmId) {
+        checkLikeTargets(userId, filmId);
+        queue.change(userId, filmId, true);
+    }
+
+    @Override
+    public void deleteLike(int userId, int filmId) {
+        checkLikeTargets(userId, filmId);
+        queue.change(userId, filmId, false);
+    }
+
+    @Override
+    public int likesCount(int filmId) {
+        return likeMatrix.likesCount(filmId);
+    }
+
+    public int pendingCount() {
+        return queue.pendingCount();
+    }
+
+    public void flush() {
+        queue.flush();
+    }
+
+    @PreDestroy
+    public void drain() throws InterruptedException {
+        queue.drain();
+        log.info("Очередь лайков записана перед остановкой.");
+    }
+
+    public long likesTotal() {
+        return likeMatrix.likesTotal();
+    }
+
+    // Память совпадает с базой для всех пар, которых нет в очереди, поэтому состояние в базе берется отсюда.
+    private boolean isLiked(int userId, int filmId) {
+        return likeMatrix.isLiked(userId, filmId);
+    }
+
+    private void applyLike(int userId, int filmId, boolean liked) {
+        if (liked) {
+            popularityIndex.incrementLikes(filmId);
+            likeMatrix.addLike(userId, filmId);
+        } else {
+            popularityIndex.decrementLikes(filmId);
+            likeMatrix.removeLike(userId, filmId);
+        }
+    }
+
+    private void checkLikeTargets(int userId, int filmId) throws FilmNotFoundException, UserNotFoundException {
+        boolean filmKnown;
+        boolean userKnown;
+        lock.readLock().lock();
+        try {
+            filmKnown = filmId > 0 && knownFilms.get(filmId);
+            userKnown = userId > 0 && knownUsers.get(userId);
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (filmKnown && userKnown) {
+            return;
+        }
+        if (!filmKnown && (filmId <= 0 || !popularityIndex.containsFilm(filmId))) {
+            throw new FilmNotFoundException("Фильма с id: " + filmId + ", не существует.");
+        }
+        if (!userKnown && (userId <= 0 || !userStorage.containsUser(userId))) {
+            throw new UserNotFoundException("Пользователя с id: " + userId + ", не существует.");
+        }
+        // Фильмы и пользователи не удаляются, поэтому однажды найденный id остается верным.
+        lock.writeLock().lock();
+        try {
+            knownFilms.set(filmId);
+            knownUsers.set(userId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
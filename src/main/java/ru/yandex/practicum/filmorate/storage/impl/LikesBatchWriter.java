@@ -0,0 +1,41 @@
+package ru.yandex.practicum.filmorate.storage.impl;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.storage.impl.WriteBehindQueue.PendingEdge;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Пачка лайков: в паре first - пользователь, second - фильм. Счетчик films.likes_count меняется на сумму по фильму.
+final class LikesBatchWriter implements WriteBehindQueue.BatchWriter {
+    private final JdbcTemplate jdbcTemplate;
+
+    LikesBatchWriter(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void write(List<PendingEdge> added, List<PendingEdge> removed) {
+        Map<Integer, Integer> deltas = new HashMap<>();
+        added.forEach(like -> deltas.merge(like.second, 1, Integer::sum));
+        removed.forEach(like -> deltas.merge(like.second, -1, Integer::sum));
+        jdbcTemplate.batchUpdate("INSERT INTO likes (user_id, film_id) VALUES (?, ?)", added, added.size(),
+                (ps, like) -> {
+                    ps.setInt(1, like.first);
+                    ps.setInt(2, like.second);
+                });
+        jdbcTemplate.batchUpdate("DELETE FROM likes WHERE user_id = ? AND film_id = ?", removed, removed.size(),
+                (ps, like) -> {
+                    ps.setInt(1, like.first);
+                    ps.setInt(2, like.second);
+                });
+        List<Map.Entry<Integer, Integer>> counts = new ArrayList<>(deltas.entrySet());
+        jdbcTemplate.batchUpdate("UPDATE films SET likes_count = likes_count + ? WHERE film_id = ?",
+                counts, counts.size(), (ps, count) -> {
+                    ps.setInt(1, count.getValue());
+                    ps.setInt(2, count.getKey());
+                });
+    }
+}
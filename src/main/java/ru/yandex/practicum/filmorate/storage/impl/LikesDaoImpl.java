@@ -1,8 +1,17 @@
 package ru.yandex.practicum.filmorate.storage.impl;
 
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.exception.FilmNotFoundException;
+import ru.yandex.practicum.filmorate.exception.UserNotFoundException;
+import ru.yandex.practicum.filmorate.storage.PairLocks;
+import ru.yandex.practicum.filmorate.storage.TransactionCallbacks;
 import ru.yandex.practicum.filmorate.storage.dao.LikesDao;
+import ru.yandex.practicum.filmorate.storage.index.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.storage.index.LikeMatrix;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -11,27 +20,73 @@ import java.sql.SQLException;
 public class LikesDaoImpl implements LikesDao {
 
     private final JdbcTemplate jdbcTemplate;
+    private final FilmPopularityIndex popularityIndex;
+    private final LikeMatrix likeMatrix;
+    private final PairLocks pairLocks = new PairLocks(256);
 
-    public LikesDaoImpl(JdbcTemplate jdbcTemplate) {
+    public LikesDaoImpl(JdbcTemplate jdbcTemplate, FilmPopularityIndex popularityIndex, LikeMatrix likeMatrix) {
         this.jdbcTemplate = jdbcTemplate;
+        this.popularityIndex = popularityIndex;
+        this.likeMatrix = likeMatrix;
     }
 
     @Override
+    @Transactional
     public void addLike(int userId, int filmId) {
+        pairLocks.lockUntilCompletion(userId, filmId);
         String sql = "INSERT INTO likes (user_id, film_id) VALUES (?, ?)";
-        jdbcTemplate.update(sql, userId, filmId);
+        try {
+            jdbcTemplate.update(sql, userId, filmId);
+        } catch (DuplicateKeyException e) {
+            return;
+        } catch (DataIntegrityViolationException e) {
+            checkLikeTargets(userId, filmId);
+            throw e;
+        }
+        changeLikesCount(filmId, 1);
+        TransactionCallbacks.afterCommit(() -> {
+            popularityIndex.incrementLikes(filmId);
+            likeMatrix.addLike(userId, filmId);
+        });
     }
 
     @Override
+    @Transactional
     public void deleteLike(int userId, int filmId) {
+        pairLocks.lockUntilCompletion(userId, filmId);
         String sql = "DELETE FROM likes WHERE user_id = ? AND film_id = ?";
-        jdbcTemplate.update(sql, userId, filmId);
+        if (jdbcTemplate.update(sql, userId, filmId) > 0) {
+            changeLikesCount(filmId, -1);
+            TransactionCallbacks.afterCommit(() -> {
+                popularityIndex.decrementLikes(filmId);
+                likeMatrix.removeLike(userId, filmId);
+            });
+        } else {
+            checkLikeTargets(userId, filmId);
+        }
     }
 
     @Override
     public int likesCount(int filmId) {
-        String sql = "SELECT COUNT(*) from likes WHERE film_id = ?";
-        return jdbcTemplate.queryForObject(sql, Integer.class, filmId);
+        return popularityIndex.likesCount(filmId);
+    }
+
+    private void changeLikesCount(int filmId, int delta) {
+        String sql = "UPDATE films SET likes_count = likes_count + ? WHERE film_id = ?";
+        jdbcTemplate.update(sql, delta, filmId);
+    }
+
+    private void checkLikeTargets(int userId, int filmId) throws FilmNotFoundException, UserNotFoundException {
+        String sql = "SELECT (SELECT COUNT(*) FROM films WHERE film_id = ?) AS films_count, " +
+                "(SELECT COUNT(*) FROM users WHERE user_id = ?) AS users_count";
+        jdbcTemplate.query(sql, rs -> {
+            if (rs.getInt("films_count") == 0) {
+                throw new FilmNotFoundException("Фильма с id: " + filmId + ", не существует.");
+            }
+            if (rs.getInt("users_count") == 0) {
+                throw new UserNotFoundException("Пользователя с id: " + userId + ", не существует.");
+            }
+        }, filmId, userId);
     }
 
     private int makeId(ResultSet rs, int rowNum) throws SQLException {
@@ -0,0 +1,105 @@
+package ru.yandex.practicum.filmorate.storage.impl;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.exception.FilmNotFoundException;
+import ru.yandex.practicum.filmorate.exception.UserNotFoundException;
+import ru.yandex.practicum.filmorate.storage.dao.LikesDao;
+import ru.yandex.practicum.filmorate.storage.index.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.storage.index.LikeMatrix;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+
+// Лайки копятся в памяти и пишутся пачками. Индекс популярности и матрица лайков меняются сразу,
+// поэтому счетчики, топ фильмов и рекомендации видят еще не записанные лайки.
+@Slf4j
+@Primary
+@Component
+@ConditionalOnProperty(name = "filmorate.likes.write-mode", havingValue = "write-behind")
+public class WriteBehindLikesDao implements LikesDao {
+    private final JdbcTemplate jdbcTemplate;
+    private final FilmPopularityIndex popularityIndex;
+    private final LikeMatrix likeMatrix;
+    private final WriteBehindQueue queue;
+
+    public WriteBehindLikesDao(JdbcTemplate jdbcTemplate,
+                               TransactionTemplate transactionTemplate,
+                               FilmPopularityIndex popularityIndex,
+                               LikeMatrix likeMatrix,
+                               MeterRegistry meterRegistry,
+                               @Value("${filmorate.likes.write-behind.batch-size:500}") int batchSize,
+                               @Value("${filmorate.likes.write-behind.capacity:10000}") int capacity,
+                               @Value("${filmorate.likes.write-behind.flush-interval:200ms}") Duration flushInterval) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.popularityIndex = popularityIndex;
+        this.likeMatrix = likeMatrix;
+        this.queue = new WriteBehindQueue("likes", transactionTemplate, meterRegistry,
+                "Лайки, ожидающие записи в базу", batchSize, capacity, flushInterval,
+                new LikesBatchWriter(jdbcTemplate), this::loadLikeState, this::applyToIndexes);
+    }
+
+    @Override
+    public void addLike(int userId, int filmId) {
+        changeLike(userId, filmId, true);
+    }
+
+    @Override
+    public void deleteLike(int userId, int filmId) {
+        changeLike(userId, filmId, false);
+    }
+
+    @Override
+    public int likesCount(int filmId) {
+        return popularityIndex.likesCount(filmId);
+    }
+
+    public int pendingCount() {
+        return queue.pendingCount();
+    }
+
+    public void flush() {
+        queue.flush();
+    }
+
+    @PreDestroy
+    public void drain() throws InterruptedException {
+        queue.drain();
+        log.info("Очередь лайков записана перед остановкой.");
+    }
+
+    private void changeLike(int userId, int filmId, boolean liked) {
+        if (!popularityIndex.containsFilm(filmId)) {
+            throw new FilmNotFoundException("Фильма с id: " + filmId + ", не существует.");
+        }
+        queue.change(userId, filmId, liked);
+    }
+
+    private void applyToIndexes(int userId, int filmId, boolean liked) {
+        if (liked) {
+            popularityIndex.incrementLikes(filmId);
+            likeMatrix.addLike(userId, filmId);
+        } else {
+            popularityIndex.decrementLikes(filmId);
+            likeMatrix.removeLike(userId, filmId);
+        }
+    }
+
+    private boolean loadLikeState(int userId, int filmId) throws UserNotFoundException {
+        String sql = "SELECT (SELECT COUNT(*) FROM users WHERE user_id = ?) AS users_count, " +
+                "(SELECT COUNT(*) FROM likes WHERE user_id = ? AND film_id = ?) AS likes_count";
+        return jdbcTemplate.query(sql, rs -> {
+            rs.next();
+            if (rs.getInt("users_count") == 0) {
+                throw new UserNotFoundException("Пользователя с id: " + userId + ", не существует.");
+            }
+            return rs.getInt("likes_count") > 0;
+        }, userId, userId, filmId);
+    }
+}
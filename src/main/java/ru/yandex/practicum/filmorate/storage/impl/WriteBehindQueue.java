@@ -0,0 +1,243 @@
+package ru.yandex.practicum.filmorate.storage.impl;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Отложенная запись ребер вида "пользователь - фильм" или "пользователь - друг". Для каждой пары помнится
+// состояние в базе и желаемое; в базу уходит только разница, пачками в одной транзакции.
+// Изменение пары на пути запроса не выделяет памяти: состояния лежат в EdgeStateMap, объекты PendingEdge
+// создаются только потоком записи при разборе пачки.
+@Slf4j
+final class WriteBehindQueue {
+    private final String name;
+    private final TransactionTemplate transactionTemplate;
+    private final BatchWriter writer;
+    private final StoredState storedState;
+    private final EdgeChange onChange;
+    private final int batchSize;
+    private final int capacity;
+    private final ScheduledExecutorService flusher;
+    private final Object lock = new Object();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private EdgeStateMap pending;
+    // Пачка, которая пишется прямо сейчас: пока она не зафиксирована, состояние ее ключей берется отсюда, а не из базы.
+    // После записи карта очищается и становится следующей pending.
+    private EdgeStateMap flushing;
+    // Растет после каждой записанной пачки: по нему видно, что база могла измениться во время чтения.
+    private long flushGeneration;
+
+    WriteBehindQueue(String name,
+                     TransactionTemplate transactionTemplate,
+                     MeterRegistry meterRegistry,
+                     String pendingDescription,
+                     int batchSize,
+                     int capacity,
+                     Duration flushInterval,
+                     BatchWriter writer,
+                     StoredState storedState,
+                     EdgeChange onChange) {
+        this.name = name;
+        this.transactionTemplate = transactionTemplate;
+        this.writer = writer;
+        this.storedState = storedState;
+        this.onChange = onChange;
+        this.batchSize = batchSize;
+        this.capacity = capacity;
+        this.pending = new EdgeStateMap(capacity);
+        this.flushing = new EdgeStateMap(capacity);
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, name + "-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly,
+                flushInterval.toMillis(), flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+        Gauge.builder("filmorate." + name + ".pending", this, WriteBehindQueue::pendingCount)
+                .description(pendingDescription)
+                .register(meterRegistry);
+    }
+
+    // Меняет желаемое состояние пары. onChange вызывается под блокировкой очереди, поэтому изменения одной пары
+    // доходят до индексов в том же порядке, что и до очереди; при неудачной записи он же возвращает индексы
+    // к состоянию в базе. Возвращает false, если пара уже в этом состоянии.
+    boolean change(int first, int second, boolean present) {
+        long key = key(first, second);
+        int size;
+        int stored = EdgeStateMap.ABSENT;
+        long storedGeneration = -1;
+        while (true) {
+            long generation;
+            synchronized (lock) {
+                int state = pending.get(key);
+                if (state == EdgeStateMap.ABSENT) {
+                    int inFlight = flushing.get(key);
+                    if (inFlight != EdgeStateMap.ABSENT) {
+                        boolean inFlightPresent = EdgeStateMap.isPresent(inFlight);
+                        state = EdgeStateMap.state(inFlightPresent, inFlightPresent);
+                    } else if (stored != EdgeStateMap.ABSENT && storedGeneration == flushGeneration) {
+                        state = stored;
+                    }
+                }
+                if (state != EdgeStateMap.ABSENT) {
+                    if (EdgeStateMap.isPresent(state) == present) {
+                        pending.put(key, state);
+                        return false;
+                    }
+                    pending.put(key, EdgeStateMap.state(EdgeStateMap.isStored(state), present));
+                    onChange.apply(first, second, present);
+                    size = pending.size();
+                    break;
+                }
+                generation = flushGeneration;
+            }
+            // Состояние в базе читается вне блокировки, чтобы остальные писатели не ждали запроса.
+            // Если за это время завершилась запись пачки, прочитанное могло устареть, и чтение повторяется.
+            boolean isStored = storedState.isStored(first, second);
+            stored = EdgeStateMap.state(isStored, isStored);
+            storedGeneration = generation;
+        }
+        if (size >= capacity) {
+            // Очередь заполнена: пишущий поток сам сбрасывает ее, чтобы не терять изменения и не расти без предела.
+            flush();
+        } else if (size == batchSize && !flusher.isShutdown()) {
+            flusher.execute(this::flushQuietly);
+        }
+        return true;
+    }
+
+    int pendingCount() {
+        synchronized (lock) {
+            return pending.size();
+        }
+    }
+
+    void flush() {
+        flushLock.lock();
+        try {
+            List<PendingEdge> changed = new ArrayList<>();
+            synchronized (lock) {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                EdgeStateMap batch = pending;
+                pending = flushing;
+                flushing = batch;
+                // Карта пачки больше не меняется до очистки, но читается писателями под блокировкой.
+                flushing.forEach((key, state) -> {
+                    if (EdgeStateMap.isPresent(state) != EdgeStateMap.isStored(state)) {
+                        changed.add(new PendingEdge(EdgeStateMap.first(key), EdgeStateMap.second(key),
+                                EdgeStateMap.isStored(state), EdgeStateMap.isPresent(state)));
+                    }
+                });
+            }
+            try {
+                write(changed);
+            } finally {
+                synchronized (lock) {
+                    flushing.clear();
+                    flushGeneration++;
+                }
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    void drain() throws InterruptedException {
+        flusher.shutdown();
+        flusher.awaitTermination(10, TimeUnit.SECONDS);
+        flush();
+    }
+
+    private void write(List<PendingEdge> changed) {
+        if (changed.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> writeChanges(changed));
+            log.debug("Очередь {}: записано изменений: {}.", name, changed.size());
+        } catch (RuntimeException e) {
+            log.error("Очередь {}: не удалось записать пачку из {} изменений, запись по одному.", name, changed.size(), e);
+            for (PendingEdge edge : changed) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> writeChanges(List.of(edge)));
+                } catch (RuntimeException single) {
+                    log.error("Очередь {}: изменение пары {} - {} не записано.", name, edge.first, edge.second, single);
+                    rollBack(edge);
+                }
+            }
+        }
+    }
+
+    private void writeChanges(List<PendingEdge> changed) {
+        List<PendingEdge> added = new ArrayList<>();
+        List<PendingEdge> removed = new ArrayList<>();
+        for (PendingEdge edge : changed) {
+            (edge.present ? added : removed).add(edge);
+        }
+        writer.write(added, removed);
+    }
+
+    private void rollBack(PendingEdge edge) {
+        long key = key(edge.first, edge.second);
+        synchronized (lock) {
+            int next = pending.get(key);
+            if (next != EdgeStateMap.ABSENT) {
+                // Пара уже снова изменена: следующая запись должна исходить из того, что на самом деле лежит в базе.
+                pending.put(key, EdgeStateMap.state(edge.stored, EdgeStateMap.isPresent(next)));
+            } else {
+                onChange.apply(edge.first, edge.second, edge.stored);
+            }
+            flushing.put(key, EdgeStateMap.state(edge.stored, edge.stored));
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Очередь {}: ошибка фоновой записи.", name, e);
+        }
+    }
+
+    private static long key(int first, int second) {
+        return ((long) first << 32) | (second & 0xFFFFFFFFL);
+    }
+
+    interface StoredState {
+        boolean isStored(int first, int second);
+    }
+
+    interface EdgeChange {
+        void apply(int first, int second, boolean present);
+    }
+
+    // Вызывается внутри транзакции пачки.
+    interface BatchWriter {
+        void write(List<PendingEdge> added, List<PendingEdge> removed);
+    }
+
+    static final class PendingEdge {
+        final int first;
+        final int second;
+        final boolean stored;
+        final boolean present;
+
+        private PendingEdge(int first, int second, boolean stored, boolean present) {
+            this.first = first;
+            this.second = second;
+            this.stored = stored;
+            this.present = present;
+        }
+    }
+}
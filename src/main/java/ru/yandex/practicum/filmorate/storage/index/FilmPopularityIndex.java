@@ -0,0 +1,313 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+@Slf4j
+@Component
+public class FilmPopularityIndex {
+    private static final String LOAD_LIKES_SQL = "SELECT f.film_id, f.likes_count, " +
+            "EXTRACT(YEAR FROM f.release_date) AS release_year, fg.genre_id " +
+            "FROM films f " +
+            "LEFT JOIN film_genres fg ON f.film_id = fg.film_id";
+    // Нулевые жанр и год в ключе среза означают "любой", срез (0, 0) - общий рейтинг.
+    private static final long ALL_FILMS = facetKey(0, 0);
+    private static final String COUNT_LIKES_SQL = "SELECT f.film_id, f.likes_count, COUNT(l.user_id) AS actual_count " +
+            "FROM films f " +
+            "LEFT JOIN likes l ON f.film_id = l.film_id " +
+            "GROUP BY f.film_id, f.likes_count";
+
+    private final JdbcTemplate jdbcTemplate;
+    // Счетчики и срезы хранятся в массивах по id фильма, поэтому лайк ничего не упаковывает и не выделяет.
+    // knownFilms отмечает фильмы со счетчиком; срезов нет у фильма, лайк которого пришел раньше создания.
+    private int[] likesByFilm = new int[0];
+    private FilmFacets[] facetsByFilm = new FilmFacets[0];
+    private final BitSet knownFilms = new BitSet();
+    // Ключ ранга: старшие 32 бита - инвертированное число лайков, младшие - id фильма,
+    // поэтому обход по возрастанию дает фильмы от популярных к менее популярным, при равенстве - по id.
+    // Отдельный рейтинг ведется на каждый жанр, год и пару жанр-год, чтобы фильтрованный топ не требовал сканирования.
+    // Рейтинги не удаляются, даже опустев: срезы фильмов ссылаются на них напрямую.
+    private final Map<Long, SortedLongSet> rankings = new HashMap<>();
+    private FilmFacets noFacets = facetsOf(0, List.of());
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public FilmPopularityIndex(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        // Счетчик films.likes_count ведется вместе с таблицей likes, поэтому агрегировать лайки не нужно.
+        Map<Integer, Integer> counts = new HashMap<>();
+        Map<Integer, Integer> years = new HashMap<>();
+        Map<Integer, List<Integer>> genres = new HashMap<>();
+        jdbcTemplate.query(LOAD_LIKES_SQL, rs -> {
+            int filmId = rs.getInt("film_id");
+            counts.put(filmId, rs.getInt("likes_count"));
+            years.put(filmId, rs.getInt("release_year"));
+            List<Integer> filmGenres = genres.computeIfAbsent(filmId, id -> new ArrayList<>());
+            int genreId = rs.getInt("genre_id");
+            if (!rs.wasNull()) {
+                filmGenres.add(genreId);
+            }
+        });
+        lock.writeLock().lock();
+        try {
+            int maxFilmId = counts.keySet().stream().mapToInt(Integer::intValue).max().orElse(0);
+            likesByFilm = new int[maxFilmId + 1];
+            facetsByFilm = new FilmFacets[maxFilmId + 1];
+            knownFilms.clear();
+            rankings.clear();
+            noFacets = facetsOf(0, List.of());
+            counts.forEach((filmId, likes) -> {
+                FilmFacets facets = facetsOf(years.get(filmId), genres.get(filmId));
+                likesByFilm[filmId] = likes;
+                facetsByFilm[filmId] = facets;
+                knownFilms.set(filmId);
+                addToRankings(filmId, likes, facets);
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Индекс популярности построен, фильмов: {}.", counts.size());
+    }
+
+    public void addFilm(int filmId, int year, Collection<Integer> genreIds) {
+        lock.writeLock().lock();
+        try {
+            ensureCapacity(filmId);
+            if (facetsByFilm[filmId] != null) {
+                return;
+            }
+            // Лайк мог зафиксироваться раньше создания фильма: тогда фильм уже стоит в общем рейтинге
+            // без жанров и года и переезжает в свои срезы с накопленным счетчиком.
+            int likes = likesByFilm[filmId];
+            FilmFacets facets = facetsOf(year, genreIds);
+            removeFromRankings(filmId, likes, noFacets);
+            knownFilms.set(filmId);
+            facetsByFilm[filmId] = facets;
+            addToRankings(filmId, likes, facets);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void updateFilm(int filmId, int year, Collection<Integer> genreIds) {
+        lock.writeLock().lock();
+        try {
+            if (!isKnown(filmId)) {
+                return;
+            }
+            int likes = likesByFilm[filmId];
+            FilmFacets facets = facetsOf(year, genreIds);
+            removeFromRankings(filmId, likes, facetsOrNone(filmId));
+            facetsByFilm[filmId] = facets;
+            addToRankings(filmId, likes, facets);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void incrementLikes(int filmId) {
+        changeLikes(filmId, 1);
+    }
+
+    public void decrementLikes(int filmId) {
+        changeLikes(filmId, -1);
+    }
+
+    public boolean containsFilm(int filmId) {
+        lock.readLock().lock();
+        try {
+            return isKnown(filmId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int likesCount(int filmId) {
+        lock.readLock().lock();
+        try {
+            return likesOf(filmId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int[] likesCounts(int[] filmIds) {
+        int[] counts = new int[filmIds.length];
+        lock.readLock().lock();
+        try {
+            for (int i = 0; i < filmIds.length; i++) {
+                counts[i] = likesOf(filmIds[i]);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return counts;
+    }
+
+    public List<Integer> findTopFilmIds(int count) {
+        return findTopFilmIds(count, null, null);
+    }
+
+    public List<Integer> findTopFilmIds(int count, Integer genreId, Integer year) {
+        long key = facetKey(genreId == null ? 0 : genreId, year == null ? 0 : year);
+        List<Integer> result = new ArrayList<>(Math.min(count, 1024));
+        lock.readLock().lock();
+        try {
+            SortedLongSet ranking = rankings.get(key);
+            if (ranking == null || count <= 0) {
+                return result;
+            }
+            ranking.forEachWhile(rankKey -> {
+                result.add(filmIdOf(rankKey));
+                return result.size() < count;
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    // Сверка индекса и films.likes_count с таблицей likes, доступна через эндпоинт popularity.
+    // Лайки, еще не записанные из очереди, тоже попадают в расхождения.
+    public List<Integer> findInconsistentFilmIds() {
+        Map<Integer, Integer> counts = new HashMap<>();
+        Set<Integer> inconsistent = new LinkedHashSet<>();
+        jdbcTemplate.query(COUNT_LIKES_SQL, rs -> {
+            int filmId = rs.getInt("film_id");
+            int actual = rs.getInt("actual_count");
+            counts.put(filmId, actual);
+            if (rs.getInt("likes_count") != actual) {
+                inconsistent.add(filmId);
+            }
+        });
+        lock.readLock().lock();
+        try {
+            counts.forEach((filmId, likes) -> {
+                if (!isKnown(filmId) || likes != likesByFilm[filmId]) {
+                    inconsistent.add(filmId);
+                }
+            });
+            knownFilms.stream()
+                    .filter(filmId -> !counts.containsKey(filmId))
+                    .forEach(inconsistent::add);
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (!inconsistent.isEmpty()) {
+            log.warn("Индекс популярности или films.likes_count расходится с таблицей likes для фильмов: {}.",
+                    inconsistent);
+        }
+        return new ArrayList<>(inconsistent);
+    }
+
+    private void changeLikes(int filmId, int delta) {
+        lock.writeLock().lock();
+        try {
+            ensureCapacity(filmId);
+            int likes = likesByFilm[filmId];
+            FilmFacets facets = facetsOrNone(filmId);
+            removeFromRankings(filmId, likes, facets);
+            int newLikes = Math.max(0, likes + delta);
+            likesByFilm[filmId] = newLikes;
+            knownFilms.set(filmId);
+            addToRankings(filmId, newLikes, facets);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private boolean isKnown(int filmId) {
+        return filmId > 0 && knownFilms.get(filmId);
+    }
+
+    private int likesOf(int filmId) {
+        return filmId > 0 && filmId < likesByFilm.length ? likesByFilm[filmId] : 0;
+    }
+
+    private FilmFacets facetsOrNone(int filmId) {
+        FilmFacets facets = facetsByFilm[filmId];
+        return facets == null ? noFacets : facets;
+    }
+
+    private void ensureCapacity(int filmId) {
+        if (filmId <= 0) {
+            throw new IllegalArgumentException("Некорректный id фильма: " + filmId);
+        }
+        if (filmId >= likesByFilm.length) {
+            int capacity = Math.max(filmId + 1, likesByFilm.length * 2);
+            likesByFilm = Arrays.copyOf(likesByFilm, capacity);
+            facetsByFilm = Arrays.copyOf(facetsByFilm, capacity);
+        }
+    }
+
+    private void addToRankings(int filmId, int likes, FilmFacets facets) {
+        long rankKey = rankKey(filmId, likes);
+        for (SortedLongSet ranking : facets.rankings) {
+            ranking.add(rankKey);
+        }
+    }
+
+    private void removeFromRankings(int filmId, int likes, FilmFacets facets) {
+        long rankKey = rankKey(filmId, likes);
+        for (SortedLongSet ranking : facets.rankings) {
+            ranking.remove(rankKey);
+        }
+    }
+
+    // Рейтинги срезов ищутся один раз при создании или изменении фильма, лайк обходит готовый массив.
+    private FilmFacets facetsOf(int year, Collection<Integer> genreIds) {
+        List<Long> facetKeys = new ArrayList<>();
+        facetKeys.add(ALL_FILMS);
+        if (year != 0) {
+            facetKeys.add(facetKey(0, year));
+        }
+        for (int genreId : genreIds) {
+            facetKeys.add(facetKey(genreId, 0));
+            if (year != 0) {
+                facetKeys.add(facetKey(genreId, year));
+            }
+        }
+        return new FilmFacets(facetKeys.stream()
+                .distinct()
+                .map(key -> rankings.computeIfAbsent(key, k -> new SortedLongSet()))
+                .toArray(SortedLongSet[]::new));
+    }
+
+    private static long facetKey(int genreId, int year) {
+        return ((long) genreId << 32) | (year & 0xFFFFFFFFL);
+    }
+
+    private static long rankKey(int filmId, int likes) {
+        return ((long) (Integer.MAX_VALUE - likes) << 32) | (filmId & 0xFFFFFFFFL);
+    }
+
+    private static int filmIdOf(long rankKey) {
+        return (int) rankKey;
+    }
+
+    private static class FilmFacets {
+        // Рейтинги всех срезов, в которых участвует фильм.
+        private final SortedLongSet[] rankings;
+
+        private FilmFacets(SortedLongSet[] rankings) {
+            this.rankings = rankings;
+        }
+    }
+}
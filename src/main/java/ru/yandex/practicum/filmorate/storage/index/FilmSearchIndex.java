@@ -0,0 +1,362 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.enums.FilmSearchField;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+@Slf4j
+@Component
+public class FilmSearchIndex {
+    private static final String LOAD_FILMS_SQL = "SELECT film_id, name, description FROM films";
+    private static final String[] NO_TOKENS = new String[0];
+    // Точное совпадение слова весит больше, чем совпадение по префиксу.
+    private static final double EXACT_MATCH = 1.0;
+    private static final double PREFIX_MATCH = 0.5;
+    // Однобуквенные слова запроса ищутся только точно.
+    private static final int MIN_PREFIX_LENGTH = 2;
+    // Префиксы до этой длины раскрываются в тысячи слов, поэтому их списки фильмов хранятся готовыми.
+    private static final int SHORT_PREFIX_LENGTH = 3;
+    // Лайки поднимают фильм логарифмически: 10 лайков дают +25% к релевантности, 1000 - +75%.
+    private static final double LIKES_BOOST = 0.25;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final FilmPopularityIndex popularityIndex;
+    // Словарь каждого поля отсортирован, поэтому префиксный поиск - это обход диапазона ключей.
+    private final Map<FilmSearchField, TreeMap<String, Postings>> dictionaries = new EnumMap<>(FilmSearchField.class);
+    private final Map<FilmSearchField, Map<String, Postings>> shortPrefixes = new EnumMap<>(FilmSearchField.class);
+    private final Map<Integer, Map<FilmSearchField, String[]>> tokensByFilm = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public FilmSearchIndex(JdbcTemplate jdbcTemplate, FilmPopularityIndex popularityIndex) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.popularityIndex = popularityIndex;
+        for (FilmSearchField field : FilmSearchField.values()) {
+            dictionaries.put(field, new TreeMap<>());
+            shortPrefixes.put(field, new HashMap<>());
+        }
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            dictionaries.values().forEach(Map::clear);
+            shortPrefixes.values().forEach(Map::clear);
+            tokensByFilm.clear();
+            jdbcTemplate.query(LOAD_FILMS_SQL, rs -> {
+                indexFilm(rs.getInt("film_id"), rs.getString("name"), rs.getString("description"));
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Поисковый индекс построен, фильмов: {}.", tokensByFilm.size());
+    }
+
+    // Добавляет фильм или заменяет его слова, если фильм уже проиндексирован.
+    public void indexFilm(int filmId, String name, String description) {
+        lock.writeLock().lock();
+        try {
+            Map<FilmSearchField, String[]> previous = tokensByFilm.get(filmId);
+            if (previous != null) {
+                previous.forEach((field, tokens) -> removePostings(field, tokens, filmId));
+            }
+            Map<FilmSearchField, String[]> tokens = new EnumMap<>(FilmSearchField.class);
+            tokens.put(FilmSearchField.TITLE, tokenize(name).toArray(NO_TOKENS));
+            tokens.put(FilmSearchField.DESCRIPTION, tokenize(description).toArray(NO_TOKENS));
+            tokens.forEach((field, fieldTokens) -> {
+                TreeMap<String, Postings> dictionary = dictionaries.get(field);
+                Map<String, Postings> prefixes = shortPrefixes.get(field);
+                for (String token : fieldTokens) {
+                    dictionary.computeIfAbsent(token, t -> new Postings()).add(filmId);
+                    // Повторное добавление фильма в список префикса ничего не меняет.
+                    for (int length = MIN_PREFIX_LENGTH; length <= shortPrefixLength(token); length++) {
+                        prefixes.computeIfAbsent(token.substring(0, length), t -> new Postings()).add(filmId);
+                    }
+                }
+            });
+            tokensByFilm.put(filmId, tokens);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Фильм должен содержать каждое слово запроса хотя бы в одном из полей. Релевантность - сумма по словам
+    // запроса лучшего совпадения с учетом веса поля и редкости слова, затем она умножается на бонус за лайки.
+    public List<Integer> search(String query, Collection<FilmSearchField> fields, int count) {
+        Set<String> queryTokens = tokenize(query);
+        if (queryTokens.isEmpty() || fields.isEmpty()) {
+            return List.of();
+        }
+        Matches candidates = null;
+        lock.readLock().lock();
+        try {
+            int filmsCount = tokensByFilm.size();
+            for (String token : queryTokens) {
+                Matches matches = matchToken(token, fields);
+                double idf = Math.log(1 + (double) filmsCount / Math.max(1, matches.size));
+                for (int i = 0; i < matches.size; i++) {
+                    matches.scores[i] *= idf;
+                }
+                candidates = candidates == null ? matches : Matches.intersect(candidates, matches);
+                if (candidates.size == 0) {
+                    return List.of();
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return topFilmIds(candidates, count);
+    }
+
+    static Set<String> tokenize(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (text == null) {
+            return tokens;
+        }
+        String normalized = text.toLowerCase(Locale.ROOT).replace('ё', 'е');
+        int start = -1;
+        for (int i = 0; i <= normalized.length(); i++) {
+            boolean letter = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+            if (letter && start < 0) {
+                start = i;
+            } else if (!letter && start >= 0) {
+                tokens.add(normalized.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    private Matches matchToken(String token, Collection<FilmSearchField> fields) {
+        List<Matches> parts = new ArrayList<>();
+        for (FilmSearchField field : fields) {
+            TreeMap<String, Postings> dictionary = dictionaries.get(field);
+            Postings exact = dictionary.get(token);
+            if (exact != null) {
+                parts.add(Matches.of(exact, field.getWeight() * EXACT_MATCH));
+            }
+            // Все слова с префиксом весят одинаково, поэтому нужен один список фильмов без повторов. Точное
+            // совпадение в него тоже входит, но при объединении наборов берется его больший вес.
+            if (token.length() >= MIN_PREFIX_LENGTH && token.length() <= SHORT_PREFIX_LENGTH) {
+                Postings prefixed = shortPrefixes.get(field).get(token);
+                if (prefixed != null) {
+                    parts.add(Matches.of(prefixed, field.getWeight() * PREFIX_MATCH));
+                }
+            } else if (token.length() > SHORT_PREFIX_LENGTH) {
+                Collection<Postings> prefixed = dictionary.subMap(token, true, token + Character.MAX_VALUE, false)
+                        .values();
+                if (!prefixed.isEmpty()) {
+                    parts.add(Matches.of(prefixed, field.getWeight() * PREFIX_MATCH));
+                }
+            }
+        }
+        // Попарное слияние уровнями: на каждое поле приходится не больше двух наборов - точный и префиксный.
+        if (parts.isEmpty()) {
+            return Matches.EMPTY;
+        }
+        while (parts.size() > 1) {
+            List<Matches> merged = new ArrayList<>((parts.size() + 1) / 2);
+            for (int i = 0; i + 1 < parts.size(); i += 2) {
+                merged.add(Matches.union(parts.get(i), parts.get(i + 1)));
+            }
+            if (parts.size() % 2 == 1) {
+                merged.add(parts.get(parts.size() - 1));
+            }
+            parts = merged;
+        }
+        return parts.get(0);
+    }
+
+    private List<Integer> topFilmIds(Matches candidates, int count) {
+        int[] likes = popularityIndex.likesCounts(Arrays.copyOf(candidates.ids, candidates.size));
+        double[] scores = new double[candidates.size];
+        for (int i = 0; i < candidates.size; i++) {
+            scores[i] = candidates.scores[i] * (1 + LIKES_BOOST * Math.log10(1 + likes[i]));
+        }
+        // Куча из count лучших: в вершине худший из отобранных, при равенстве - с большим id.
+        Comparator<Integer> ranking = (a, b) -> scores[a] == scores[b]
+                ? Integer.compare(candidates.ids[b], candidates.ids[a])
+                : Double.compare(scores[a], scores[b]);
+        PriorityQueue<Integer> top = new PriorityQueue<>(Math.min(count, candidates.size) + 1, ranking);
+        for (int i = 0; i < candidates.size; i++) {
+            if (top.size() < count) {
+                top.add(i);
+            } else if (ranking.compare(i, top.peek()) > 0) {
+                top.poll();
+                top.add(i);
+            }
+        }
+        Integer[] result = new Integer[top.size()];
+        for (int i = result.length - 1; i >= 0; i--) {
+            result[i] = candidates.ids[top.poll()];
+        }
+        return Arrays.asList(result);
+    }
+
+    private void removePostings(FilmSearchField field, String[] tokens, int filmId) {
+        TreeMap<String, Postings> dictionary = dictionaries.get(field);
+        Map<String, Postings> prefixes = shortPrefixes.get(field);
+        for (String token : tokens) {
+            removePosting(dictionary, token, filmId);
+            for (int length = MIN_PREFIX_LENGTH; length <= shortPrefixLength(token); length++) {
+                removePosting(prefixes, token.substring(0, length), filmId);
+            }
+        }
+    }
+
+    private static int shortPrefixLength(String token) {
+        return Math.min(token.length(), SHORT_PREFIX_LENGTH);
+    }
+
+    private static void removePosting(Map<String, Postings> postingsByKey, String key, int filmId) {
+        Postings postings = postingsByKey.get(key);
+        if (postings != null && postings.remove(filmId) && postings.size == 0) {
+            postingsByKey.remove(key);
+        }
+    }
+
+    // Отсортированный список id фильмов со словом. Новые фильмы получают растущие id,
+    // поэтому при обычной вставке id дописывается в конец.
+    private static class Postings {
+        private int[] ids = new int[4];
+        private int size;
+
+        private void add(int filmId) {
+            if (size == 0 || ids[size - 1] < filmId) {
+                grow();
+                ids[size++] = filmId;
+                return;
+            }
+            int position = Arrays.binarySearch(ids, 0, size, filmId);
+            if (position >= 0) {
+                return;
+            }
+            int insertAt = -position - 1;
+            grow();
+            System.arraycopy(ids, insertAt, ids, insertAt + 1, size - insertAt);
+            ids[insertAt] = filmId;
+            size++;
+        }
+
+        private boolean remove(int filmId) {
+            int position = Arrays.binarySearch(ids, 0, size, filmId);
+            if (position < 0) {
+                return false;
+            }
+            System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+            size--;
+            return true;
+        }
+
+        private void grow() {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, ids.length * 2);
+            }
+        }
+    }
+
+    // Найденные фильмы по возрастанию id со своими очками.
+    private static class Matches {
+        private static final Matches EMPTY = new Matches(new int[0], new double[0], 0);
+
+        private final int[] ids;
+        private final double[] scores;
+        private final int size;
+
+        private Matches(int[] ids, double[] scores, int size) {
+            this.ids = ids;
+            this.scores = scores;
+            this.size = size;
+        }
+
+        private static Matches of(Postings postings, double score) {
+            double[] scores = new double[postings.size];
+            Arrays.fill(scores, score);
+            return new Matches(Arrays.copyOf(postings.ids, postings.size), scores, postings.size);
+        }
+
+        // Списки длинного префикса короткие: их id собираются в один массив, сортируются и очищаются от повторов.
+        private static Matches of(Collection<Postings> postingsList, double score) {
+            int total = 0;
+            for (Postings postings : postingsList) {
+                total += postings.size;
+            }
+            int[] ids = new int[total];
+            int offset = 0;
+            for (Postings postings : postingsList) {
+                System.arraycopy(postings.ids, 0, ids, offset, postings.size);
+                offset += postings.size;
+            }
+            Arrays.sort(ids);
+            int size = 0;
+            for (int i = 0; i < total; i++) {
+                if (size == 0 || ids[size - 1] != ids[i]) {
+                    ids[size++] = ids[i];
+                }
+            }
+            double[] scores = new double[size];
+            Arrays.fill(scores, score);
+            return new Matches(ids, scores, size);
+        }
+
+        // Фильм из обоих наборов берет лучшее совпадение: одно слово запроса не засчитывается дважды.
+        private static Matches union(Matches a, Matches b) {
+            int[] ids = new int[a.size + b.size];
+            double[] scores = new double[a.size + b.size];
+            int i = 0;
+            int j = 0;
+            int size = 0;
+            while (i < a.size || j < b.size) {
+                if (j == b.size || (i < a.size && a.ids[i] < b.ids[j])) {
+                    ids[size] = a.ids[i];
+                    scores[size++] = a.scores[i++];
+                } else if (i == a.size || b.ids[j] < a.ids[i]) {
+                    ids[size] = b.ids[j];
+                    scores[size++] = b.scores[j++];
+                } else {
+                    ids[size] = a.ids[i];
+                    scores[size++] = Math.max(a.scores[i++], b.scores[j++]);
+                }
+            }
+            return new Matches(ids, scores, size);
+        }
+
+        private static Matches intersect(Matches a, Matches b) {
+            int capacity = Math.min(a.size, b.size);
+            int[] ids = new int[capacity];
+            double[] scores = new double[capacity];
+            int i = 0;
+            int j = 0;
+            int size = 0;
+            while (i < a.size && j < b.size) {
+                if (a.ids[i] < b.ids[j]) {
+                    i++;
+                } else if (a.ids[i] > b.ids[j]) {
+                    j++;
+                } else {
+                    ids[size] = a.ids[i];
+                    scores[size++] = a.scores[i++] + b.scores[j++];
+                }
+            }
+            return new Matches(ids, scores, size);
+        }
+    }
+}
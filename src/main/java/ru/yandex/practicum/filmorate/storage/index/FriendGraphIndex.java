@@ -0,0 +1,137 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.enums.FriendshipStatus;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Slf4j
+@Component
+public class FriendGraphIndex {
+    private static final int[] NO_FRIENDS = new int[0];
+    private static final String LOAD_FRIENDS_SQL = "SELECT user_id, friend_id FROM user_friends " +
+            "ORDER BY user_id, friend_id";
+
+    private final JdbcTemplate jdbcTemplate;
+    // Списки друзей хранятся отсортированными и не меняются на месте: запись подменяет массив целиком,
+    // поэтому чтение идет без блокировок.
+    private final Map<Integer, int[]> friendsByUser = new ConcurrentHashMap<>();
+
+    public FriendGraphIndex(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        Map<Integer, List<Integer>> loaded = new HashMap<>();
+        jdbcTemplate.query(LOAD_FRIENDS_SQL, rs -> {
+            loaded.computeIfAbsent(rs.getInt("user_id"), id -> new ArrayList<>()).add(rs.getInt("friend_id"));
+        });
+        friendsByUser.clear();
+        loaded.forEach((userId, friendIds) ->
+                friendsByUser.put(userId, friendIds.stream().mapToInt(Integer::intValue).toArray()));
+        log.info("Индекс друзей построен, пользователей: {}.", loaded.size());
+    }
+
+    public void addFriend(int userId, int friendId) {
+        friendsByUser.compute(userId, (id, friends) -> {
+            int[] current = friends == null ? NO_FRIENDS : friends;
+            int position = Arrays.binarySearch(current, friendId);
+            if (position >= 0) {
+                return current;
+            }
+            int insertAt = -position - 1;
+            int[] updated = new int[current.length + 1];
+            System.arraycopy(current, 0, updated, 0, insertAt);
+            updated[insertAt] = friendId;
+            System.arraycopy(current, insertAt, updated, insertAt + 1, current.length - insertAt);
+            return updated;
+        });
+    }
+
+    public void removeFriend(int userId, int friendId) {
+        friendsByUser.computeIfPresent(userId, (id, friends) -> {
+            int position = Arrays.binarySearch(friends, friendId);
+            if (position < 0) {
+                return friends;
+            }
+            if (friends.length == 1) {
+                return null;
+            }
+            int[] updated = new int[friends.length - 1];
+            System.arraycopy(friends, 0, updated, 0, position);
+            System.arraycopy(friends, position + 1, updated, position, friends.length - position - 1);
+            return updated;
+        });
+    }
+
+    public int[] friendIds(int userId) {
+        return friendsByUser.getOrDefault(userId, NO_FRIENDS);
+    }
+
+    public boolean isFriend(int userId, int friendId) {
+        return Arrays.binarySearch(friendIds(userId), friendId) >= 0;
+    }
+
+    // Статус берется из встречного ребра, как и friendship_status_id в базе: подтверждена дружба, заявка на которую взаимна.
+    public List<Integer> friendIds(int userId, FriendshipStatus status) {
+        int[] friends = friendIds(userId);
+        List<Integer> result = new ArrayList<>(friends.length);
+        for (int friendId : friends) {
+            if (isFriend(friendId, userId) == (status == FriendshipStatus.CONFIRMED)) {
+                result.add(friendId);
+            }
+        }
+        return result;
+    }
+
+    public List<Integer> commonFriendIds(int userId, int otherId) {
+        int[] first = friendIds(userId);
+        int[] second = friendIds(otherId);
+        List<Integer> common = new ArrayList<>(Math.min(first.length, second.length));
+        int i = 0;
+        int j = 0;
+        while (i < first.length && j < second.length) {
+            if (first[i] < second[j]) {
+                i++;
+            } else if (first[i] > second[j]) {
+                j++;
+            } else {
+                common.add(first[i]);
+                i++;
+                j++;
+            }
+        }
+        return common;
+    }
+
+    // Друзья друзей, которых еще нет в списке пользователя: чем больше общих друзей, тем выше, при равенстве - по id.
+    public List<Integer> suggestedFriendIds(int userId, int count) {
+        int[] friends = friendIds(userId);
+        Map<Integer, Integer> overlap = new HashMap<>();
+        for (int friendId : friends) {
+            for (int candidateId : friendIds(friendId)) {
+                if (candidateId != userId && Arrays.binarySearch(friends, candidateId) < 0) {
+                    overlap.merge(candidateId, 1, Integer::sum);
+                }
+            }
+        }
+        List<Map.Entry<Integer, Integer>> ranked = new ArrayList<>(overlap.entrySet());
+        ranked.sort((a, b) -> a.getValue().equals(b.getValue())
+                ? Integer.compare(a.getKey(), b.getKey())
+                : Integer.compare(b.getValue(), a.getValue()));
+        List<Integer> result = new ArrayList<>(Math.min(count, ranked.size()));
+        for (int i = 0; i < ranked.size() && i < count; i++) {
+            result.add(ranked.get(i).getKey());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,188 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+// Отображение int -> отсортированное множество int без упаковки: открытая адресация по ключам
+// и растущие массивы значений. Ключи должны быть положительными, 0 отмечает свободную ячейку.
+// Класс не потокобезопасен, синхронизацию обеспечивает владелец.
+public class IntSetMultimap {
+    private static final int FREE = 0;
+    private static final int[] NO_VALUES = new int[0];
+    private static final int INITIAL_VALUES_CAPACITY = 4;
+
+    private int[] keys;
+    private int[][] values;
+    private int[] sizes;
+    private int mask;
+    private int keyCount;
+    private long valueCount;
+
+    public IntSetMultimap() {
+        this(16);
+    }
+
+    public IntSetMultimap(int expectedKeys) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedKeys * 2 - 1)) << 1;
+        allocate(capacity);
+    }
+
+    public boolean put(int key, int value) {
+        checkKey(key);
+        int slot = slotOf(key);
+        if (keys[slot] == FREE) {
+            keys[slot] = key;
+            values[slot] = new int[INITIAL_VALUES_CAPACITY];
+            keyCount++;
+            if (keyCount * 4 > keys.length * 3) {
+                rehash(keys.length * 2);
+                slot = slotOf(key);
+            }
+        }
+        int[] current = values[slot];
+        int size = sizes[slot];
+        // Значения обычно приходят по возрастанию (новые id), тогда вставка - дописывание в конец.
+        int position = size == 0 || current[size - 1] < value ? -size - 1 : Arrays.binarySearch(current, 0, size, value);
+        if (position >= 0) {
+            return false;
+        }
+        int insertAt = -position - 1;
+        if (size == current.length) {
+            current = Arrays.copyOf(current, size * 2);
+            values[slot] = current;
+        }
+        System.arraycopy(current, insertAt, current, insertAt + 1, size - insertAt);
+        current[insertAt] = value;
+        sizes[slot] = size + 1;
+        valueCount++;
+        return true;
+    }
+
+    public boolean remove(int key, int value) {
+        checkKey(key);
+        int slot = slotOf(key);
+        if (keys[slot] == FREE) {
+            return false;
+        }
+        int[] current = values[slot];
+        int size = sizes[slot];
+        int position = Arrays.binarySearch(current, 0, size, value);
+        if (position < 0) {
+            return false;
+        }
+        System.arraycopy(current, position + 1, current, position, size - position - 1);
+        sizes[slot] = size - 1;
+        valueCount--;
+        if (size == 1) {
+            removeSlot(slot);
+        }
+        return true;
+    }
+
+    public boolean contains(int key, int value) {
+        int slot = slotOf(key);
+        return keys[slot] != FREE && Arrays.binarySearch(values[slot], 0, sizes[slot], value) >= 0;
+    }
+
+    public boolean containsKey(int key) {
+        return keys[slotOf(key)] != FREE;
+    }
+
+    public int size(int key) {
+        int slot = slotOf(key);
+        return keys[slot] == FREE ? 0 : sizes[slot];
+    }
+
+    public int[] values(int key) {
+        int slot = slotOf(key);
+        return keys[slot] == FREE ? NO_VALUES : Arrays.copyOf(values[slot], sizes[slot]);
+    }
+
+    // Обход без копирования массива значений; действие не должно менять отображение.
+    public void forEach(int key, IntConsumer action) {
+        int slot = slotOf(key);
+        if (keys[slot] == FREE) {
+            return;
+        }
+        int[] current = values[slot];
+        for (int i = 0, size = sizes[slot]; i < size; i++) {
+            action.accept(current[i]);
+        }
+    }
+
+    public int keyCount() {
+        return keyCount;
+    }
+
+    public long valueCount() {
+        return valueCount;
+    }
+
+    public void clear() {
+        allocate(16);
+        keyCount = 0;
+        valueCount = 0;
+    }
+
+    private int slotOf(int key) {
+        int slot = mix(key) & mask;
+        while (keys[slot] != FREE && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    // Удаление со сдвигом назад: следующие ключи цепочки переезжают ближе к своей исходной ячейке,
+    // поэтому поиск по-прежнему останавливается на первой свободной ячейке.
+    private void removeSlot(int slot) {
+        int free = slot;
+        int next = (slot + 1) & mask;
+        while (keys[next] != FREE) {
+            int home = mix(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - free) & mask)) {
+                keys[free] = keys[next];
+                values[free] = values[next];
+                sizes[free] = sizes[next];
+                free = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[free] = FREE;
+        values[free] = null;
+        sizes[free] = 0;
+        keyCount--;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        int[][] oldValues = values;
+        int[] oldSizes = sizes;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE) {
+                int slot = slotOf(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+                sizes[slot] = oldSizes[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity][];
+        sizes = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static void checkKey(int key) {
+        if (key <= FREE) {
+            throw new IllegalArgumentException("Ключ должен быть положительным: " + key);
+        }
+    }
+}
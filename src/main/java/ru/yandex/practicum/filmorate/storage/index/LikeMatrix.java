@@ -0,0 +1,277 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+
+@Slf4j
+@Component
+public class LikeMatrix {
+    private static final int[] NO_IDS = new int[0];
+    private static final String LOAD_LIKES_SQL = "SELECT user_id, film_id FROM likes ORDER BY user_id, film_id";
+    // С такого числа лайков пользователя пересечения с остальными считаются параллельно в общем ForkJoinPool.
+    private static final int PARALLEL_THRESHOLD = 64;
+
+    private final JdbcTemplate jdbcTemplate;
+    // Строки и столбцы матрицы пользователь x фильм меняются на месте под блокировкой записи.
+    private final IntSetMultimap filmsByUser = new IntSetMultimap();
+    private final IntSetMultimap usersByFilm = new IntSetMultimap();
+    // Счетчики изменений строки пользователя и столбца фильма, индекс - id. По ним запись кэша
+    // проверяет, что пересечения пользователя и строки его соседей не изменились с момента расчета.
+    private int[] userVersions = NO_IDS;
+    private int[] filmVersions = NO_IDS;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Cache<Integer, Recommendations> recommendations;
+    private final int neighbours;
+    private final int maxRecommendations;
+
+    public LikeMatrix(JdbcTemplate jdbcTemplate,
+                      MeterRegistry meterRegistry,
+                      @Value("${filmorate.recommendations.neighbours:50}") int neighbours,
+                      @Value("${filmorate.recommendations.max-count:100}") int maxRecommendations,
+                      @Value("${filmorate.cache.recommendations.maximum-size:10000}") long maximumSize,
+                      @Value("${filmorate.cache.recommendations.expire-after-write:1m}") Duration expireAfterWrite) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.neighbours = neighbours;
+        this.maxRecommendations = maxRecommendations;
+        this.recommendations = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, recommendations, "recommendations");
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            filmsByUser.clear();
+            usersByFilm.clear();
+            jdbcTemplate.query(LOAD_LIKES_SQL, rs -> {
+                int userId = rs.getInt("user_id");
+                int filmId = rs.getInt("film_id");
+                filmsByUser.put(userId, filmId);
+                usersByFilm.put(filmId, userId);
+            });
+            recommendations.invalidateAll();
+            log.info("Матрица лайков построена, пользователей: {}, фильмов: {}.",
+                    filmsByUser.keyCount(), usersByFilm.keyCount());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Подборки остальных пользователей не сбрасываются: версии пользователя и фильма делают устаревшими
+    // при следующем чтении только те из них, где этот пользователь - сосед или этот фильм в пересечениях.
+    public void addLike(int userId, int filmId) {
+        lock.writeLock().lock();
+        try {
+            if (filmsByUser.put(userId, filmId)) {
+                usersByFilm.put(filmId, userId);
+                userVersions = bump(userVersions, userId);
+                filmVersions = bump(filmVersions, filmId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeLike(int userId, int filmId) {
+        lock.writeLock().lock();
+        try {
+            if (filmsByUser.remove(userId, filmId)) {
+                usersByFilm.remove(filmId, userId);
+                userVersions = bump(userVersions, userId);
+                filmVersions = bump(filmVersions, filmId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int[] filmIds(int userId) {
+        lock.readLock().lock();
+        try {
+            return filmsByUser.values(userId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int[] userIds(int filmId) {
+        lock.readLock().lock();
+        try {
+            return usersByFilm.values(filmId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean isLiked(int userId, int filmId) {
+        lock.readLock().lock();
+        try {
+            return filmsByUser.contains(userId, filmId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int likesCount(int filmId) {
+        lock.readLock().lock();
+        try {
+            return usersByFilm.size(filmId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long likesTotal() {
+        lock.readLock().lock();
+        try {
+            return usersByFilm.valueCount();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Integer> recommendedFilmIds(int userId, int count) {
+        Recommendations cached = recommendations.getIfPresent(userId);
+        lock.readLock().lock();
+        try {
+            if (cached == null || !isCurrent(userId, cached)) {
+                cached = compute(userId);
+                recommendations.put(userId, cached);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        int[] ranked = cached.filmIds;
+        List<Integer> result = new ArrayList<>(Math.min(count, ranked.length));
+        for (int i = 0; i < ranked.length && i < count; i++) {
+            result.add(ranked[i]);
+        }
+        return result;
+    }
+
+    public int[] computeRecommendations(int userId) {
+        lock.readLock().lock();
+        try {
+            return compute(userId).filmIds;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Соседи - пользователи с наибольшим числом общих лайков; фильм получает сумму пересечений соседей,
+    // которым он понравился. При равенстве порядок по id. Вызывается под блокировкой чтения: потоки
+    // ForkJoinPool только читают матрицу, пока вызывающий поток держит блокировку.
+    private Recommendations compute(int userId) {
+        int[] liked = filmsByUser.values(userId);
+        if (liked.length == 0) {
+            return new Recommendations(NO_IDS, liked, NO_IDS, versionOf(userVersions, userId), 0, 0);
+        }
+        IntStream films = Arrays.stream(liked);
+        if (liked.length >= PARALLEL_THRESHOLD) {
+            films = films.parallel();
+        }
+        Map<Integer, Integer> overlap = films.collect(HashMap::new,
+                (counts, filmId) -> usersByFilm.forEach(filmId, otherId -> {
+                    if (otherId != userId) {
+                        counts.merge(otherId, 1, Integer::sum);
+                    }
+                }),
+                (left, right) -> right.forEach((otherId, count) -> left.merge(otherId, count, Integer::sum)));
+
+        List<Map.Entry<Integer, Integer>> nearest = topEntries(overlap, neighbours);
+        int[] neighbourIds = new int[nearest.size()];
+        Map<Integer, Integer> scores = new HashMap<>();
+        for (int i = 0; i < neighbourIds.length; i++) {
+            Map.Entry<Integer, Integer> neighbour = nearest.get(i);
+            neighbourIds[i] = neighbour.getKey();
+            filmsByUser.forEach(neighbour.getKey(), filmId -> {
+                if (Arrays.binarySearch(liked, filmId) < 0) {
+                    scores.merge(filmId, neighbour.getValue(), Integer::sum);
+                }
+            });
+        }
+        int[] filmIds = topEntries(scores, maxRecommendations).stream()
+                .mapToInt(Map.Entry::getKey)
+                .toArray();
+        return new Recommendations(filmIds, liked, neighbourIds, versionOf(userVersions, userId),
+                versionSum(filmVersions, liked), versionSum(userVersions, neighbourIds));
+    }
+
+    // Пересечения пользователя меняются только вместе с его строкой или столбцами отмеченных им фильмов,
+    // а оценки фильмов - еще и со строками выбранных соседей. Проверка стоит O(лайков + соседей).
+    private boolean isCurrent(int userId, Recommendations cached) {
+        return cached.userVersion == versionOf(userVersions, userId)
+                && cached.likedFilmsVersion == versionSum(filmVersions, cached.likedFilmIds)
+                && cached.neighboursVersion == versionSum(userVersions, cached.neighbourIds);
+    }
+
+    // Версии только растут, поэтому сумма по неизменному набору id меняется при любом изменении строк.
+    private static long versionSum(int[] versions, int[] ids) {
+        long version = 0;
+        for (int id : ids) {
+            version += versionOf(versions, id);
+        }
+        return version;
+    }
+
+    private static int versionOf(int[] versions, int id) {
+        return id < versions.length ? versions[id] : 0;
+    }
+
+    private static int[] bump(int[] versions, int id) {
+        int[] current = versions;
+        if (id >= current.length) {
+            current = Arrays.copyOf(current, Math.max(id + 1, current.length * 2));
+        }
+        current[id]++;
+        return current;
+    }
+
+    private static List<Map.Entry<Integer, Integer>> topEntries(Map<Integer, Integer> values, int count) {
+        List<Map.Entry<Integer, Integer>> ranked = new ArrayList<>(values.entrySet());
+        ranked.sort((a, b) -> a.getValue().equals(b.getValue())
+                ? Integer.compare(a.getKey(), b.getKey())
+                : Integer.compare(b.getValue(), a.getValue()));
+        return ranked.size() > count ? ranked.subList(0, count) : ranked;
+    }
+
+    private static final class Recommendations {
+        private final int[] filmIds;
+        private final int[] likedFilmIds;
+        private final int[] neighbourIds;
+        private final int userVersion;
+        private final long likedFilmsVersion;
+        private final long neighboursVersion;
+
+        private Recommendations(int[] filmIds, int[] likedFilmIds, int[] neighbourIds, int userVersion,
+                                long likedFilmsVersion, long neighboursVersion) {
+            this.filmIds = filmIds;
+            this.likedFilmIds = likedFilmIds;
+            this.neighbourIds = neighbourIds;
+            this.userVersion = userVersion;
+            this.likedFilmsVersion = likedFilmsVersion;
+            this.neighboursVersion = neighboursVersion;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+@Component
+@Endpoint(id = "popularity")
+public class PopularityIndexEndpoint {
+    private final FilmPopularityIndex popularityIndex;
+
+    public PopularityIndexEndpoint(FilmPopularityIndex popularityIndex) {
+        this.popularityIndex = popularityIndex;
+    }
+
+    @ReadOperation
+    public Map<String, List<Integer>> inconsistentFilms() {
+        return Map.of("inconsistentFilmIds", popularityIndex.findInconsistentFilmIds());
+    }
+
+    @WriteOperation
+    public Map<String, List<Integer>> rebuild() {
+        popularityIndex.rebuild();
+        return inconsistentFilms();
+    }
+}
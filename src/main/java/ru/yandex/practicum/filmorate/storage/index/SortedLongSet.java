@@ -0,0 +1,114 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import java.util.Arrays;
+import java.util.function.LongPredicate;
+
+// Упорядоченное множество long без упаковки: отсортированные блоки ограниченного размера. Вставка и удаление
+// сдвигают элементы только внутри одного блока, переполненный блок делится пополам.
+// Класс не потокобезопасен, синхронизацию обеспечивает владелец.
+final class SortedLongSet {
+    private static final int BLOCK_CAPACITY = 512;
+
+    private long[][] blocks = new long[4][];
+    private int[] sizes = new int[4];
+    // Пустой блок бывает только один - когда пусто все множество.
+    private int blockCount = 1;
+    private int size;
+
+    SortedLongSet() {
+        blocks[0] = new long[BLOCK_CAPACITY];
+    }
+
+    boolean add(long value) {
+        int block = blockFor(value);
+        int position = Arrays.binarySearch(blocks[block], 0, sizes[block], value);
+        if (position >= 0) {
+            return false;
+        }
+        int insertAt = -position - 1;
+        if (sizes[block] == BLOCK_CAPACITY) {
+            split(block);
+            if (insertAt > BLOCK_CAPACITY / 2) {
+                block++;
+                insertAt -= BLOCK_CAPACITY / 2;
+            }
+        }
+        long[] values = blocks[block];
+        System.arraycopy(values, insertAt, values, insertAt + 1, sizes[block] - insertAt);
+        values[insertAt] = value;
+        sizes[block]++;
+        size++;
+        return true;
+    }
+
+    boolean remove(long value) {
+        int block = blockFor(value);
+        long[] values = blocks[block];
+        int position = Arrays.binarySearch(values, 0, sizes[block], value);
+        if (position < 0) {
+            return false;
+        }
+        System.arraycopy(values, position + 1, values, position, sizes[block] - position - 1);
+        sizes[block]--;
+        size--;
+        if (sizes[block] == 0 && blockCount > 1) {
+            removeBlock(block);
+        }
+        return true;
+    }
+
+    int size() {
+        return size;
+    }
+
+    // Обходит значения по возрастанию, пока действие возвращает true.
+    void forEachWhile(LongPredicate action) {
+        for (int block = 0; block < blockCount; block++) {
+            long[] values = blocks[block];
+            for (int i = 0, blockSize = sizes[block]; i < blockSize; i++) {
+                if (!action.test(values[i])) {
+                    return;
+                }
+            }
+        }
+    }
+
+    // Первый блок, последний элемент которого не меньше значения, иначе последний блок.
+    private int blockFor(long value) {
+        int low = 0;
+        int high = blockCount - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (blocks[middle][sizes[middle] - 1] >= value) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+
+    private void split(int block) {
+        if (blockCount == blocks.length) {
+            blocks = Arrays.copyOf(blocks, blockCount * 2);
+            sizes = Arrays.copyOf(sizes, blockCount * 2);
+        }
+        System.arraycopy(blocks, block + 1, blocks, block + 2, blockCount - block - 1);
+        System.arraycopy(sizes, block + 1, sizes, block + 2, blockCount - block - 1);
+        int half = BLOCK_CAPACITY / 2;
+        long[] upper = new long[BLOCK_CAPACITY];
+        System.arraycopy(blocks[block], half, upper, 0, BLOCK_CAPACITY - half);
+        blocks[block + 1] = upper;
+        sizes[block + 1] = BLOCK_CAPACITY - half;
+        sizes[block] = half;
+        blockCount++;
+    }
+
+    private void removeBlock(int block) {
+        System.arraycopy(blocks, block + 1, blocks, block, blockCount - block - 1);
+        System.arraycopy(sizes, block + 1, sizes, block, blockCount - block - 1);
+        blockCount--;
+        blocks[blockCount] = null;
+        sizes[blockCount] = 0;
+    }
+}
@@ -0,0 +1,149 @@
+package ru.yandex.practicum.filmorate.storage.reactive;
+
+import io.r2dbc.h2.H2ConnectionConfiguration;
+import io.r2dbc.h2.H2ConnectionFactory;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.Row;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.yandex.practicum.filmorate.exception.FilmNotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.storage.cache.ReferenceDataCache;
+import ru.yandex.practicum.filmorate.storage.index.FilmPopularityIndex;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+// Читающая часть FilmDbStorage поверх R2DBC. Соединения открываются к той же базе, что и у JDBC,
+// но ConnectionFactory не публикуется бином: иначе в контексте появится второй менеджер транзакций.
+// Соединения берутся из собственного пула, который закрывается вместе с контекстом.
+@Component
+@Profile("reactive")
+public class ReactiveFilmStorage {
+    private static final String JDBC_URL_PREFIX = "jdbc:h2:";
+    private static final String SELECT_FILMS_SQL = "SELECT f.*, fg.genre_id FROM films f " +
+            "LEFT JOIN film_genres fg ON f.film_id = fg.film_id ";
+
+    private final ConnectionPool connectionPool;
+    private final DatabaseClient databaseClient;
+    private final ReferenceDataCache referenceDataCache;
+    private final FilmPopularityIndex popularityIndex;
+
+    public ReactiveFilmStorage(DataSourceProperties dataSourceProperties,
+                               ReferenceDataCache referenceDataCache,
+                               FilmPopularityIndex popularityIndex,
+                               @Value("${filmorate.reactive.pool.max-size:10}") int maxPoolSize) {
+        H2ConnectionFactory connectionFactory = new H2ConnectionFactory(H2ConnectionConfiguration.builder()
+                .url(dataSourceProperties.determineUrl().substring(JDBC_URL_PREFIX.length()))
+                .username(dataSourceProperties.determineUsername())
+                .password(dataSourceProperties.determinePassword())
+                .build());
+        this.connectionPool = new ConnectionPool(ConnectionPoolConfiguration.builder(connectionFactory)
+                .maxSize(maxPoolSize)
+                .build());
+        this.databaseClient = DatabaseClient.create(connectionPool);
+        this.referenceDataCache = referenceDataCache;
+        this.popularityIndex = popularityIndex;
+    }
+
+    @PreDestroy
+    public void close() {
+        connectionPool.dispose();
+    }
+
+    public Flux<Film> findAll() {
+        return toFilms(databaseClient.sql(SELECT_FILMS_SQL + "ORDER BY f.film_id, fg.genre_id")
+                .map(this::makeFilmRow)
+                .all());
+    }
+
+    public Mono<Film> findFilmById(int filmId) {
+        return toFilms(databaseClient.sql(SELECT_FILMS_SQL + "WHERE f.film_id = :id ORDER BY fg.genre_id")
+                .bind("id", filmId)
+                .map(this::makeFilmRow)
+                .all())
+                .next()
+                .switchIfEmpty(Mono.error(() ->
+                        new FilmNotFoundException(String.format("Фильм c id = %d, не найден", filmId))));
+    }
+
+    // Топ читается из индекса при подписке, а не при сборке Flux.
+    public Flux<Film> findTopFilms(int count) {
+        return Flux.defer(() -> {
+            List<Integer> filmIds = popularityIndex.findTopFilmIds(count);
+            if (filmIds.isEmpty()) {
+                return Flux.empty();
+            }
+            String sql = SELECT_FILMS_SQL + "WHERE f.film_id IN (:ids) ORDER BY f.film_id, fg.genre_id";
+            return toFilms(databaseClient.sql(sql)
+                    .bind("ids", filmIds)
+                    .map(this::makeFilmRow)
+                    .all())
+                    .collectMap(Film::getId)
+                    .flatMapIterable(filmsById -> inOrder(filmIds, filmsById));
+        });
+    }
+
+    // Строки одного фильма идут подряд, поэтому в памяти держится только текущий фильм.
+    private Flux<Film> toFilms(Flux<FilmRow> rows) {
+        return rows.bufferUntilChanged(row -> row.film.getId())
+                .map(this::makeFilm);
+    }
+
+    private Film makeFilm(List<FilmRow> rows) {
+        Film film = rows.get(0).film;
+        film.setGenres(new ArrayList<>());
+        for (FilmRow row : rows) {
+            if (row.genreId != null) {
+                film.addGenre(referenceDataCache.findGenreById(row.genreId));
+            }
+        }
+        return film;
+    }
+
+    private FilmRow makeFilmRow(Row row) {
+        Integer mpaId = row.get("mpa_id", Integer.class);
+        Mpa mpa = mpaId == null ? null : referenceDataCache.findMpaById(mpaId);
+        Film film = Film.builder()
+                .id(Objects.requireNonNull(row.get("film_id", Integer.class)))
+                .name(row.get("name", String.class))
+                .description(row.get("description", String.class))
+                .releaseDate(Objects.requireNonNull(row.get("release_date", LocalDateTime.class)).toLocalDate())
+                .duration(Objects.requireNonNull(row.get("duration", Integer.class)))
+                .mpa(mpa)
+                .build();
+        return new FilmRow(film, row.get("genre_id", Integer.class));
+    }
+
+    private static List<Film> inOrder(List<Integer> filmIds, Map<Integer, Film> filmsById) {
+        List<Film> films = new ArrayList<>(filmsById.size());
+        for (Integer filmId : filmIds) {
+            Film film = filmsById.get(filmId);
+            if (film != null) {
+                films.add(film);
+            }
+        }
+        return films;
+    }
+
+    private static final class FilmRow {
+        private final Film film;
+        private final Integer genreId;
+
+        private FilmRow(Film film, Integer genreId) {
+            this.film = film;
+            this.genreId = genreId;
+        }
+    }
+}
@@ -0,0 +1,3 @@
+CREATE INDEX IF NOT EXISTS likes_film_id_idx ON likes (film_id);
+
+CREATE INDEX IF NOT EXISTS user_friends_friend_id_idx ON user_friends (friend_id);
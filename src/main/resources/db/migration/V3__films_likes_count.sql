@@ -0,0 +1,3 @@
+ALTER TABLE films ADD COLUMN IF NOT EXISTS likes_count int DEFAULT 0 NOT NULL;
+
+UPDATE films f SET likes_count = (SELECT COUNT(*) FROM likes l WHERE l.film_id = f.film_id);
@@ -0,0 +1,2 @@
+UPDATE user_friends uf SET friendship_status_id = CASE WHEN EXISTS
+(SELECT 1 FROM user_friends r WHERE r.user_id = uf.friend_id AND r.friend_id = uf.user_id) THEN 2 ELSE 1 END;
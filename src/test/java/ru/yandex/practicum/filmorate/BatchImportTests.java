@@ -0,0 +1,98 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "filmorate.import.batch-size=2")
+@AutoConfigureTestDatabase
+@AutoConfigureMockMvc
+@DirtiesContext
+class BatchImportTests {
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private FilmService filmService;
+    @Autowired
+    private UserService userService;
+
+    @Test
+    public void testFilmsImportReportsErrorsPerRecord() throws Exception {
+        String body = "[" +
+                film("first", "d", "1") + "," +
+                film("long", "x".repeat(201), "1") + "," +
+                film("bad genre", "d", "99") + "," +
+                "{\"name\":\"bad date\",\"description\":\"d\",\"releaseDate\":\"not-a-date\"," +
+                "\"duration\":90,\"mpa\":{\"id\":1}}," +
+                film("last", "d", "2") +
+                "]";
+
+        mockMvc.perform(post("/films/batch").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.received").value(5))
+                .andExpect(jsonPath("$.imported").value(2))
+                .andExpect(jsonPath("$.failed").value(3))
+                .andExpect(jsonPath("$.errors[0].index").value(1))
+                .andExpect(jsonPath("$.errors[1].index").value(2))
+                .andExpect(jsonPath("$.errors[2].index").value(3));
+
+        List<Film> films = filmService.findAll();
+        assertEquals(List.of("first", "last"), films.stream().map(Film::getName).collect(Collectors.toList()));
+        assertEquals(2, films.get(1).getGenres().get(0).getId());
+    }
+
+    @Test
+    public void testFilmsImportReportsConstraintViolations() throws Exception {
+        String body = "[" +
+                "{\"name\":\"no date\",\"description\":\"d\",\"duration\":90,\"mpa\":{\"id\":1}}," +
+                "{\"name\":\"no mpa\",\"description\":\"d\",\"releaseDate\":\"2000-01-01\",\"duration\":90}" +
+                "]";
+
+        mockMvc.perform(post("/films/batch").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(0))
+                .andExpect(jsonPath("$.errors[0].message").value("releaseDate: Дата релиза не может быть пустым."))
+                .andExpect(jsonPath("$.errors[1].message").value("mpa: Рейтинг MPA не может быть пустым."));
+    }
+
+    @Test
+    public void testUsersImportAcceptsNdjson() throws Exception {
+        String body = user("one") + "\n" + user("two") + "\n" + user("with space") + "\n" + user("three") + "\n";
+
+        mockMvc.perform(post("/users/batch").contentType(MediaType.APPLICATION_NDJSON).content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.received").value(4))
+                .andExpect(jsonPath("$.imported").value(3))
+                .andExpect(jsonPath("$.errors[0].index").value(2));
+
+        assertEquals(3, userService.findAll().size());
+        assertEquals("three", userService.getUserById(userService.findAll().get(2).getId()).getName());
+    }
+
+    private String film(String name, String description, String genreId) {
+        return "{\"name\":\"" + name + "\",\"description\":\"" + description + "\"," +
+                "\"releaseDate\":\"2000-01-01\",\"duration\":90,\"mpa\":{\"id\":1}," +
+                "\"genres\":[{\"id\":" + genreId + "}]}";
+    }
+
+    private String user(String login) {
+        return "{\"login\":\"" + login + "\",\"email\":\"" + login.replace(' ', '_') + "@mail.ru\"," +
+                "\"birthday\":\"1990-01-01\"}";
+    }
+}
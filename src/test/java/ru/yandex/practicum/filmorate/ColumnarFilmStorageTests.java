@@ -0,0 +1,119 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.metrics.SqlRequestStats;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.service.BatchImport;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.cache.ColumnarFilmStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest(properties = "filmorate.films.read-model=columnar")
+@AutoConfigureTestDatabase
+@DirtiesContext
+class ColumnarFilmStorageTests {
+    @Autowired
+    private FilmService filmService;
+    @Autowired
+    private FilmStorage readModel;
+    @Autowired
+    @Qualifier("FilmDbStorage")
+    private FilmStorage filmDbStorage;
+    @Autowired
+    private ColumnarFilmStorage columnarFilmStorage;
+
+    @Test
+    public void testColumnarReadsMatchDatabaseWithoutStatements() {
+        assertEquals(ColumnarFilmStorage.class, AopUtils.getTargetClass(readModel));
+
+        List<Film> created = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            created.add(filmService.create(generateFilm(i)));
+        }
+        BatchImport<Film> batchImport = filmService.startImport();
+        for (int i = 5; i < 12; i++) {
+            batchImport.add(generateFilm(i));
+        }
+        batchImport.finish();
+
+        Film updated = created.get(2);
+        updated.setName("updated");
+        updated.setMpa(Mpa.builder().id(5).build());
+        updated.setGenres(new ArrayList<>(List.of(Genre.builder().id(6).build(), Genre.builder().id(1).build())));
+        filmService.update(updated);
+        Film keptGenres = created.get(3);
+        keptGenres.setGenres(null);
+        keptGenres.setDuration(42);
+        filmService.update(keptGenres);
+
+        assertReadsMatchDatabase();
+        columnarFilmStorage.rebuild();
+        assertReadsMatchDatabase();
+        assertThrows(RuntimeException.class, () -> readModel.findFilmById(9999));
+    }
+
+    private void assertReadsMatchDatabase() {
+        List<Integer> ids = filmDbStorage.findAll().stream().map(Film::getId).collect(Collectors.toList());
+        List<Integer> sparseIds = List.of(ids.get(7), 9999, ids.get(2), ids.get(0));
+        List<String> expectedStream = new ArrayList<>();
+        filmDbStorage.streamAll(film -> expectedStream.add(describe(film)));
+
+        SqlRequestStats.start();
+        List<String> all = describe(readModel.findAll());
+        List<String> page = describe(readModel.findPage(ids.get(3), 4));
+        List<String> byIds = describe(readModel.findFilmsByIds(sparseIds));
+        String byId = describe(readModel.findFilmById(ids.get(2)).orElseThrow());
+        List<String> streamed = new ArrayList<>();
+        readModel.streamAll(film -> streamed.add(describe(film)));
+        assertEquals(0, SqlRequestStats.stop().getStatements());
+
+        assertEquals(describe(filmDbStorage.findAll()), all);
+        assertEquals(describe(filmDbStorage.findPage(ids.get(3), 4)), page);
+        assertEquals(describe(filmDbStorage.findFilmsByIds(sparseIds)), byIds);
+        assertEquals(describe(filmDbStorage.findFilmById(ids.get(2)).orElseThrow()), byId);
+        assertEquals(expectedStream, streamed);
+    }
+
+    private List<String> describe(Collection<Film> films) {
+        return films.stream().map(this::describe).collect(Collectors.toList());
+    }
+
+    private String describe(Film film) {
+        return film.getId() + "|" + film.getName() + "|" + film.getDescription() + "|" + film.getReleaseDate() + "|" +
+                film.getDuration() + "|" + film.getMpa().getId() + ":" + film.getMpa().getName() + "|" +
+                film.getGenres().stream()
+                        .map(genre -> genre.getId() + ":" + genre.getName())
+                        .collect(Collectors.joining(","));
+    }
+
+    private Film generateFilm(int i) {
+        List<Genre> genres = new ArrayList<>();
+        genres.add(Genre.builder().id(i % 6 + 1).build());
+        genres.add(Genre.builder().id((i + 3) % 6 + 1).build());
+        return Film.builder()
+                .name("film" + i)
+                .description("description" + i % 3)
+                .duration(90 + i)
+                .releaseDate(LocalDate.of(1990 + i, 1 + i % 12, 1))
+                .mpa(Mpa.builder().id(i % 5 + 1).build())
+                .genres(genres)
+                .build();
+    }
+}
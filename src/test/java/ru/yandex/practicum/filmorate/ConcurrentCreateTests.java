@@ -0,0 +1,71 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.FilmService;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static ru.yandex.practicum.filmorate.TestData.generateFilm;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureTestDatabase
+@DirtiesContext
+class ConcurrentCreateTests {
+    private static final int THREADS = 16;
+    private static final int FILMS_PER_THREAD = 25;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+    @Autowired
+    private FilmService filmService;
+
+    @Test
+    public void testConcurrentCreatesGetUniqueIds() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Callable<List<Film>>> tasks = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            tasks.add(() -> {
+                List<Film> created = new ArrayList<>();
+                for (int i = 0; i < FILMS_PER_THREAD; i++) {
+                    ResponseEntity<Film> response = restTemplate.postForEntity("/films",
+                            generateFilm("film-" + thread + "-" + i), Film.class);
+                    assertEquals(HttpStatus.OK, response.getStatusCode());
+                    created.add(response.getBody());
+                }
+                return created;
+            });
+        }
+
+        Set<Integer> ids = new HashSet<>();
+        try {
+            for (Future<List<Film>> future : executor.invokeAll(tasks)) {
+                for (Film film : future.get()) {
+                    ids.add(film.getId());
+                    assertEquals(film.getName(), filmService.findFilmById(film.getId()).getName());
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(THREADS * FILMS_PER_THREAD, ids.size());
+        assertEquals(THREADS * FILMS_PER_THREAD, filmService.findAll().size());
+    }
+}
@@ -0,0 +1,68 @@
+package ru.yandex.practicum.filmorate;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static ru.yandex.practicum.filmorate.TestData.generateFilm;
+import static ru.yandex.practicum.filmorate.TestData.generateUser;
+
+class EntityCacheTests extends SharedContextTests {
+    @Autowired
+    private FilmService filmService;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    public void testFilmCacheIsInvalidatedOnUpdate() {
+        Film film = filmService.create(generateFilm("film"));
+        double hitsBefore = cacheGets("films", "hit");
+
+        Film first = filmService.findFilmById(film.getId());
+        Film second = filmService.findFilmById(film.getId());
+        assertNotSame(first, second);
+        assertEquals(hitsBefore + 1, cacheGets("films", "hit"));
+
+        // Изменение выданной копии не портит закэшированный фильм.
+        second.setName("mutated");
+        second.getMpa().setId(5);
+        second.setGenres(null);
+        Film third = filmService.findFilmById(film.getId());
+        assertEquals("film", third.getName());
+        assertEquals(1, third.getMpa().getId());
+        assertEquals(hitsBefore + 2, cacheGets("films", "hit"));
+
+        Film updated = generateFilm("updated");
+        updated.setId(film.getId());
+        filmService.update(updated);
+        assertEquals("updated", filmService.findFilmById(film.getId()).getName());
+    }
+
+    @Test
+    public void testUserCacheIsInvalidatedOnUpdate() {
+        User user = userService.create(generateUser("login"));
+        userService.getUserById(user.getId()).setLogin("mutated");
+        assertEquals("login", userService.getUserById(user.getId()).getLogin());
+
+        User updated = generateUser("updated");
+        updated.setId(user.getId());
+        userService.update(updated);
+        assertEquals("updated", userService.getUserById(user.getId()).getLogin());
+    }
+
+    private double cacheGets(String cache, String result) {
+        return meterRegistry.get("cache.gets")
+                .tag("cache", cache)
+                .tag("result", result)
+                .functionCounter()
+                .count();
+    }
+}
@@ -0,0 +1,162 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.service.GenreService;
+import ru.yandex.practicum.filmorate.service.MpaService;
+import ru.yandex.practicum.filmorate.storage.dao.FilmDbStorage;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+class FilmDbStorageQueryCountTests {
+    private static final int FILMS_COUNT = 20;
+    private static final AtomicInteger statements = new AtomicInteger();
+
+    @Autowired
+    private FilmDbStorage filmStorage;
+    @Autowired
+    private MpaService mpaService;
+    @Autowired
+    private GenreService genreService;
+
+    @BeforeEach
+    public void fillFilms() {
+        if (filmStorage.findAll().isEmpty()) {
+            for (int i = 1; i <= FILMS_COUNT; i++) {
+                filmStorage.create(generateFilm(i));
+            }
+        }
+        statements.set(0);
+    }
+
+    @Test
+    public void testFindAllIssuesConstantNumberOfStatements() {
+        List<Film> films = filmStorage.findAll();
+
+        assertEquals(FILMS_COUNT, films.size());
+        assertEquals(2, statements.get());
+        assertEquals(2, films.get(0).getGenres().size());
+        assertEquals("PG", films.get(0).getMpa().getName());
+    }
+
+    @Test
+    public void testFindTopFilmsIssuesConstantNumberOfStatements() {
+        assertEquals(FILMS_COUNT, filmStorage.findTopFilms(FILMS_COUNT).size());
+        assertEquals(2, statements.get());
+    }
+
+    @Test
+    public void testFindFilmByIdIssuesConstantNumberOfStatements() {
+        Film film = filmStorage.findFilmById(3).orElseThrow();
+
+        assertEquals(2, statements.get());
+        assertEquals(2, film.getGenres().size());
+    }
+
+    @Test
+    public void testUpdateWritesOnlyGenreDiff() {
+        Film film = generateFilm(FILMS_COUNT);
+        film.setGenres(new ArrayList<>(List.of(
+                Genre.builder().id(6).build(),
+                Genre.builder().id(4).build(),
+                Genre.builder().id(5).build(),
+                Genre.builder().id(5).build())));
+
+        Film updated = filmStorage.update(film);
+
+        assertEquals(4, statements.get());
+        assertEquals(List.of(4, 5, 6), genreIds(updated));
+        assertEquals(genreService.findGenreById(6).getName(), updated.getGenres().get(2).getName());
+        assertEquals(List.of(4, 5, 6), genreIds(filmStorage.findFilmById(FILMS_COUNT).orElseThrow()));
+    }
+
+    @Test
+    public void testReferenceDataLookupsIssueNoStatements() {
+        assertEquals(5, mpaService.findAll().size());
+        assertEquals("NC-17", mpaService.findMpaById(5).getName());
+        assertEquals(6, genreService.findAll().size());
+        assertEquals(2, genreService.findGenreById(2).getId());
+
+        assertEquals(0, statements.get());
+    }
+
+    private List<Integer> genreIds(Film film) {
+        return film.getGenres().stream()
+                .map(Genre::getId)
+                .collect(Collectors.toList());
+    }
+
+    private Film generateFilm(int i) {
+        List<Genre> genres = new ArrayList<>();
+        genres.add(Genre.builder().id(i % 6 + 1).build());
+        genres.add(Genre.builder().id((i + 1) % 6 + 1).build());
+        return Film.builder()
+                .id(i)
+                .name("film" + i)
+                .description("description")
+                .duration(100 + i)
+                .releaseDate(LocalDate.of(2000, 1, 1).plusDays(i))
+                .mpa(Mpa.builder().id(i % 5 + 1).build())
+                .genres(genres)
+                .build();
+    }
+
+    @TestConfiguration
+    static class StatementCountingConfig {
+        @Bean
+        public static BeanPostProcessor statementCountingPostProcessor() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    if (bean instanceof DataSource) {
+                        return new DelegatingDataSource((DataSource) bean) {
+                            @Override
+                            public Connection getConnection() throws SQLException {
+                                return countStatements(super.getConnection());
+                            }
+                        };
+                    }
+                    return bean;
+                }
+            };
+        }
+
+        private static Connection countStatements(Connection connection) {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> {
+                        if (method.getName().equals("prepareStatement") || method.getName().equals("createStatement")) {
+                            statements.incrementAndGet();
+                        }
+                        try {
+                            return method.invoke(connection, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    });
+        }
+    }
+}
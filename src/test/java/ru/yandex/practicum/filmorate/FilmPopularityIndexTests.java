@@ -0,0 +1,169 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.index.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.storage.index.PopularityIndexEndpoint;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static ru.yandex.practicum.filmorate.TestData.generateFilm;
+import static ru.yandex.practicum.filmorate.TestData.generateUser;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@DirtiesContext
+class FilmPopularityIndexTests {
+    @Autowired
+    private FilmService filmService;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private FilmPopularityIndex popularityIndex;
+    @Autowired
+    private PopularityIndexEndpoint popularityIndexEndpoint;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void testTopFilmsFollowLikesAndMatchSql() {
+        int[] films = new int[4];
+        for (int i = 0; i < films.length; i++) {
+            films[i] = filmService.create(generateFilm("film" + i)).getId();
+        }
+        int[] users = new int[3];
+        for (int i = 0; i < users.length; i++) {
+            users[i] = userService.create(generateUser("user" + i)).getId();
+        }
+
+        filmService.addLike(users[0], films[2]);
+        filmService.addLike(users[1], films[2]);
+        filmService.addLike(users[2], films[2]);
+        filmService.addLike(users[0], films[0]);
+        filmService.addLike(users[1], films[0]);
+        filmService.addLike(users[0], films[3]);
+        assertEquals(List.of(films[2], films[0], films[3], films[1]), topFilmIds(4));
+        assertEquals(List.of(films[2]), topFilmIds(1));
+
+        filmService.deleteLike(users[0], films[2]);
+        filmService.deleteLike(users[1], films[2]);
+        filmService.deleteLike(users[1], films[2]);
+        assertEquals(List.of(films[0], films[2], films[3], films[1]), topFilmIds(4));
+        assertTrue(popularityIndex.findInconsistentFilmIds().isEmpty());
+
+        popularityIndex.rebuild();
+        assertEquals(List.of(films[0], films[2], films[3], films[1]), topFilmIds(4));
+    }
+
+    @Test
+    @DirtiesContext
+    public void testTopFilmsByGenreAndYearMatchSql() {
+        List<Film> films = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            Film film = generateFilm("film" + i);
+            film.setReleaseDate(LocalDate.of(2010 + i % 3, 1, 1));
+            film.setGenres(new ArrayList<>(List.of(
+                    Genre.builder().id(i % 6 + 1).build(),
+                    Genre.builder().id((i + 2) % 6 + 1).build())));
+            films.add(filmService.create(film));
+        }
+        List<Integer> users = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            users.add(userService.create(generateUser("user" + (100 + i))).getId());
+        }
+        for (int i = 0; i < films.size(); i++) {
+            for (int j = 0; j < i % 5; j++) {
+                filmService.addLike(users.get(j), films.get(i).getId());
+            }
+        }
+        assertFilteredTopsMatchSql();
+
+        Film moved = films.get(4);
+        moved.setReleaseDate(LocalDate.of(2012, 6, 1));
+        moved.setGenres(new ArrayList<>(List.of(Genre.builder().id(6).build())));
+        filmService.update(moved);
+        Film kept = films.get(3);
+        kept.setReleaseDate(LocalDate.of(2011, 6, 1));
+        kept.setGenres(null);
+        filmService.update(kept);
+        filmService.deleteLike(users.get(0), films.get(9).getId());
+        assertFilteredTopsMatchSql();
+
+        popularityIndex.rebuild();
+        assertFilteredTopsMatchSql();
+    }
+
+    @Test
+    public void testLikeCommittedBeforeFilmKeepsFilmInFacetRankings() {
+        FilmPopularityIndex index = new FilmPopularityIndex(null);
+        index.addFilm(1, 2001, List.of(3));
+        index.incrementLikes(2);
+        index.incrementLikes(2);
+        index.addFilm(2, 2001, List.of(3, 4));
+
+        assertEquals(2, index.likesCount(2));
+        assertEquals(List.of(2, 1), index.findTopFilmIds(10));
+        assertEquals(List.of(2, 1), index.findTopFilmIds(10, 3, 2001));
+        assertEquals(List.of(2), index.findTopFilmIds(10, 4, null));
+
+        index.addFilm(2, 2001, List.of());
+        assertEquals(List.of(2), index.findTopFilmIds(10, 4, 2001));
+    }
+
+    @Test
+    @DirtiesContext
+    public void testEndpointReportsEachInconsistentFilmOnce() {
+        int filmId = filmService.create(generateFilm("drifted")).getId();
+        assertTrue(popularityIndexEndpoint.inconsistentFilms().get("inconsistentFilmIds").isEmpty());
+
+        // Счетчик в базе и индекс расходятся с likes одновременно, но фильм попадает в отчет один раз.
+        jdbcTemplate.update("UPDATE films SET likes_count = likes_count + 1 WHERE film_id = ?", filmId);
+        popularityIndex.incrementLikes(filmId);
+        assertEquals(Map.of("inconsistentFilmIds", List.of(filmId)), popularityIndexEndpoint.inconsistentFilms());
+
+        jdbcTemplate.update("UPDATE films SET likes_count = likes_count - 1 WHERE film_id = ?", filmId);
+        assertTrue(popularityIndexEndpoint.rebuild().get("inconsistentFilmIds").isEmpty());
+    }
+
+    private void assertFilteredTopsMatchSql() {
+        for (Integer genreId : new Integer[]{null, 1, 3, 6}) {
+            for (Integer year : new Integer[]{null, 2010, 2011, 2012}) {
+                assertEquals(sqlTopFilmIds(5, genreId, year),
+                        filmService.findTopFilms(5, genreId, year).stream()
+                                .map(Film::getId)
+                                .collect(Collectors.toList()),
+                        "genreId=" + genreId + ", year=" + year);
+            }
+        }
+    }
+
+    private List<Integer> sqlTopFilmIds(int count, Integer genreId, Integer year) {
+        String sql = "SELECT f.film_id FROM films f " +
+                "LEFT JOIN likes l ON f.film_id = l.film_id " +
+                "WHERE (? IS NULL OR EXISTS (SELECT 1 FROM film_genres fg " +
+                "WHERE fg.film_id = f.film_id AND fg.genre_id = ?)) " +
+                "AND (? IS NULL OR EXTRACT(YEAR FROM f.release_date) = ?) " +
+                "GROUP BY f.film_id ORDER BY COUNT(l.user_id) DESC, f.film_id LIMIT ?";
+        return jdbcTemplate.queryForList(sql, Integer.class, genreId, genreId, year, year, count);
+    }
+
+    private List<Integer> topFilmIds(int count) {
+        return filmService.findTopFilms(count).stream()
+                .map(Film::getId)
+                .collect(Collectors.toList());
+    }
+}
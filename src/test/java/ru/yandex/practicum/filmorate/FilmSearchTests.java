@@ -0,0 +1,107 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.enums.FilmSearchField;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.index.FilmSearchIndex;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static ru.yandex.practicum.filmorate.TestData.generateFilm;
+import static ru.yandex.practicum.filmorate.TestData.generateUser;
+
+class FilmSearchTests extends SharedContextTests {
+    private static final String MATRIX_RU = "\u041c\u0430\u0442\u0440\u0438\u0446\u0430";
+
+    @Autowired
+    private FilmService filmService;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private FilmSearchIndex searchIndex;
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    public void testSearchMatchesPrefixesCaseInsensitivelyAndRanksByRelevance() {
+        Film matrix = filmService.create(generateFilm("The Matrix", "A hacker learns the truth about reality"));
+        Film reloaded = filmService.create(generateFilm("Matrix Reloaded", "Neo returns"));
+        Film hackers = filmService.create(generateFilm("Hackers", "Teenage matrix enthusiasts"));
+        Film bites = filmService.create(generateFilm("Reality Bites", "Slackers in Houston"));
+        Film russian = filmService.create(generateFilm(MATRIX_RU, "Neo"));
+
+        assertEquals(List.of(matrix.getId(), reloaded.getId()), searchIds("matrix", "title"));
+        assertEquals(List.of(matrix.getId(), reloaded.getId(), hackers.getId()),
+                searchIds("MATR", "title,description"));
+        assertEquals(List.of(hackers.getId()), searchIds("matrix", "description"));
+        assertEquals(List.of(hackers.getId(), matrix.getId()), searchIds("hack", "title,description"));
+        assertEquals(List.of(matrix.getId()), searchIds("matrix reality", "title,description"));
+        assertEquals(List.of(russian.getId()), searchIds(MATRIX_RU.toLowerCase().substring(0, 4), "title"));
+        assertEquals(List.of(), searchIds("m", "title"));
+
+        // При равной релевантности выше фильм с большим числом лайков.
+        int userId = userService.create(generateUser("fan")).getId();
+        filmService.addLike(userId, reloaded.getId());
+        assertEquals(List.of(reloaded.getId(), matrix.getId()), searchIds("matrix", "title"));
+
+        bites.setName("Matrix Bites");
+        filmService.update(bites);
+        assertEquals(List.of(), searchIds("reality", "title"));
+        assertEquals(List.of(reloaded.getId(), matrix.getId(), bites.getId()), searchIds("matrix", "title"));
+
+        searchIndex.rebuild();
+        assertEquals(List.of(reloaded.getId(), matrix.getId(), bites.getId()), searchIds("matrix", "title"));
+        assertEquals(List.of(matrix.getId()), searchIds("reality", "title,description"));
+    }
+
+    @Test
+    public void testShortPrefixFindsFilmsOfEveryMatchingWord() {
+        Set<Integer> created = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            created.add(filmService.create(generateFilm("Zyx" + i, "prefix")).getId());
+        }
+
+        List<Integer> found = searchIndex.search("zyx", List.of(FilmSearchField.TITLE), 1000);
+        assertEquals(created, new HashSet<>(found));
+
+        // Готовые списки коротких префиксов следуют за переименованием.
+        Film renamed = filmService.findFilmById(found.get(0));
+        renamed.setName("Qwv renamed");
+        filmService.update(renamed);
+        created.remove(renamed.getId());
+        assertEquals(created, new HashSet<>(searchIndex.search("zy", List.of(FilmSearchField.TITLE), 1000)));
+        assertEquals(List.of(renamed.getId()), searchIndex.search("qw", List.of(FilmSearchField.TITLE), 1000));
+    }
+
+    @Test
+    public void testSearchEndpointValidatesParameters() throws Exception {
+        filmService.create(generateFilm("Search endpoint", "description"));
+
+        mockMvc.perform(get("/films/search").param("query", "endpoint").param("by", "title"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value("Search endpoint"));
+        mockMvc.perform(get("/films/search").param("query", "endpoint").param("by", "year"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/films/search"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/films/search").param("query", "endpoint").param("count", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private List<Integer> searchIds(String query, String by) {
+        return filmService.searchFilms(query, by, 10).stream()
+                .map(Film::getId)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,60 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.index.FriendGraphIndex;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static ru.yandex.practicum.filmorate.TestData.generateUser;
+
+class FriendGraphIndexTests extends SharedContextTests {
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private FriendGraphIndex friendGraphIndex;
+
+    @Test
+    public void testCommonAndSuggestedFriendsFollowFriendships() {
+        int[] users = new int[6];
+        for (int i = 0; i < users.length; i++) {
+            users[i] = userService.create(generateUser("user" + i)).getId();
+        }
+
+        userService.addFriend(users[0], users[1]);
+        userService.addFriend(users[0], users[2]);
+        userService.addFriend(users[1], users[3]);
+        userService.addFriend(users[1], users[4]);
+        userService.addFriend(users[2], users[3]);
+        userService.addFriend(users[2], users[0]);
+        userService.addFriend(users[5], users[3]);
+        userService.addFriend(users[5], users[2]);
+
+        assertTrue(friendGraphIndex.isFriend(users[0], users[2]));
+        assertFalse(friendGraphIndex.isFriend(users[3], users[1]));
+        assertEquals(List.of(users[2]), ids(userService.getCommonFriends(users[0], users[5])));
+        assertEquals(List.of(users[3]), ids(userService.getCommonFriends(users[1], users[2])));
+        assertEquals(List.of(users[3], users[4]), ids(userService.getSuggestedFriends(users[0], 10)));
+        assertEquals(List.of(users[3]), ids(userService.getSuggestedFriends(users[0], 1)));
+
+        userService.deleteFriend(users[0], users[1]);
+        assertEquals(List.of(users[3]), ids(userService.getSuggestedFriends(users[0], 10)));
+
+        friendGraphIndex.rebuild();
+        assertEquals(List.of(users[2]), ids(userService.getCommonFriends(users[0], users[5])));
+        assertEquals(List.of(users[3]), ids(userService.getSuggestedFriends(users[0], 10)));
+    }
+
+    private List<Integer> ids(Collection<User> users) {
+        return users.stream()
+                .map(User::getId)
+                .collect(Collectors.toList());
+    }
+}
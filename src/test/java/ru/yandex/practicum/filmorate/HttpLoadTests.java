@@ -0,0 +1,226 @@
+package ru.yandex.practicum.filmorate;
+
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Нагрузочный прогон: mvn -Pload test [-Dload.clients=64 -Dload.duration=60 -Dload.budget.p99=100]
+// База в памяти, но с пулом Hikari, чтобы размер пула ограничивал нагрузку так же, как в приложении.
+@Slf4j
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"logging.level.ru.yandex.practicum.filmorate=WARN",
+                "spring.datasource.url=jdbc:h2:mem:load;DB_CLOSE_DELAY=-1"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@DirtiesContext
+class HttpLoadTests {
+    private static final long MAX_LATENCY_MICROS = TimeUnit.SECONDS.toMicros(60);
+
+    private final int clients = Integer.getInteger("load.clients", 16);
+    private final int users = Integer.getInteger("load.users", 2000);
+    private final int films = Integer.getInteger("load.films", 2000);
+    private final Duration warmup = Duration.ofSeconds(Long.getLong("load.warmup", 5));
+    private final Duration duration = Duration.ofSeconds(Long.getLong("load.duration", 20));
+    private final String mix = System.getProperty("load.mix",
+            "getFilm=30,popular=20,like=20,getUser=10,friends=5,commonFriends=5,addFriend=10");
+
+    private final Map<String, Function<ThreadLocalRandom, HttpRequest>> endpoints = new LinkedHashMap<>();
+    private final Map<String, Recorder> recorders = new LinkedHashMap<>();
+    private final Map<String, AtomicLong> errors = new LinkedHashMap<>();
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    @LocalServerPort
+    private int port;
+
+    @Test
+    public void testEndpointsStayWithinLatencyBudget() throws Exception {
+        registerEndpoints();
+        seed();
+        List<String> weighted = parseMix();
+
+        run(weighted, warmup);
+        recorders.values().forEach(Recorder::reset);
+        errors.values().forEach(counter -> counter.set(0));
+        run(weighted, duration);
+
+        List<String> violations = new ArrayList<>();
+        StringBuilder report = new StringBuilder(String.format("%-15s %10s %10s %10s %10s %10s %8s%n",
+                "endpoint", "count", "rps", "p50,ms", "p99,ms", "p999,ms", "errors"));
+        for (Map.Entry<String, Recorder> entry : recorders.entrySet()) {
+            String endpoint = entry.getKey();
+            Histogram histogram = entry.getValue().getIntervalHistogram();
+            if (histogram.getTotalCount() == 0) {
+                continue;
+            }
+            double p50 = millis(histogram.getValueAtPercentile(50));
+            double p99 = millis(histogram.getValueAtPercentile(99));
+            double p999 = millis(histogram.getValueAtPercentile(99.9));
+            report.append(String.format("%-15s %10d %10d %10.2f %10.2f %10.2f %8d%n", endpoint,
+                    histogram.getTotalCount(), histogram.getTotalCount() / Math.max(duration.toSeconds(), 1),
+                    p50, p99, p999, errors.get(endpoint).get()));
+
+            checkBudget(violations, endpoint, "p99", p99, 500);
+            checkBudget(violations, endpoint, "p999", p999, 2000);
+        }
+        log.warn("Результаты нагрузочного прогона {} ({} клиентов, {} с):{}{}",
+                reportName(), clients, duration.toSeconds(), System.lineSeparator(), report);
+        Files.writeString(Path.of("target", reportName() + ".txt"), report.toString());
+
+        assertEquals(0, errors.values().stream().mapToLong(AtomicLong::get).sum(), "Есть ошибочные ответы");
+        assertTrue(violations.isEmpty(), "Превышен бюджет задержки: " + violations);
+    }
+
+    protected String reportName() {
+        return "load-report";
+    }
+
+    private void registerEndpoints() {
+        endpoints.put("getFilm", random -> get("/films/" + randomId(random, films)));
+        endpoints.put("popular", random -> get("/films/popular?count=10"));
+        endpoints.put("like", random -> put("/films/" + randomId(random, films) + "/like/" + randomId(random, users)));
+        endpoints.put("getUser", random -> get("/users/" + randomId(random, users)));
+        endpoints.put("friends", random -> get("/users/" + randomId(random, users) + "/friends"));
+        endpoints.put("commonFriends", random -> get("/users/" + randomId(random, users) + "/friends/common/" +
+                randomId(random, users)));
+        endpoints.put("addFriend", random -> {
+            int userId = randomId(random, users);
+            int friendId = userId % users + 1;
+            return put("/users/" + userId + "/friends/" + friendId);
+        });
+        for (String endpoint : endpoints.keySet()) {
+            recorders.put(endpoint, new Recorder(MAX_LATENCY_MICROS, 3));
+            errors.put(endpoint, new AtomicLong());
+        }
+    }
+
+    private void seed() throws IOException, InterruptedException {
+        StringBuilder usersBody = new StringBuilder();
+        for (int i = 1; i <= users; i++) {
+            usersBody.append("{\"login\":\"user").append(i).append("\",\"email\":\"user").append(i)
+                    .append("@mail.ru\",\"birthday\":\"1990-01-01\"}\n");
+        }
+        StringBuilder filmsBody = new StringBuilder();
+        for (int i = 1; i <= films; i++) {
+            filmsBody.append("{\"name\":\"film").append(i).append("\",\"description\":\"description\",")
+                    .append("\"releaseDate\":\"2000-01-01\",\"duration\":90,\"mpa\":{\"id\":1},")
+                    .append("\"genres\":[{\"id\":").append(i % 6 + 1).append("}]}\n");
+        }
+        assertEquals(200, send(post("/users/batch", usersBody.toString())).statusCode());
+        assertEquals(200, send(post("/films/batch", filmsBody.toString())).statusCode());
+    }
+
+    private List<String> parseMix() {
+        List<String> weighted = new ArrayList<>();
+        for (String part : mix.split(",")) {
+            String[] entry = part.trim().split("=");
+            if (!endpoints.containsKey(entry[0])) {
+                throw new IllegalArgumentException("Неизвестный endpoint в load.mix: " + entry[0]);
+            }
+            for (int i = 0; i < Integer.parseInt(entry[1]); i++) {
+                weighted.add(entry[0]);
+            }
+        }
+        return weighted;
+    }
+
+    private void run(List<String> weighted, Duration period) throws InterruptedException {
+        long deadline = System.nanoTime() + period.toNanos();
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        for (int i = 0; i < clients; i++) {
+            executor.execute(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (System.nanoTime() < deadline) {
+                    String endpoint = weighted.get(random.nextInt(weighted.size()));
+                    HttpRequest request = endpoints.get(endpoint).apply(random);
+                    long start = System.nanoTime();
+                    try {
+                        HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() >= 300) {
+                            errors.get(endpoint).incrementAndGet();
+                        }
+                    } catch (IOException e) {
+                        errors.get(endpoint).incrementAndGet();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+                    recorders.get(endpoint).recordValue(Math.min(micros, MAX_LATENCY_MICROS));
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(period.toSeconds() + 60, TimeUnit.SECONDS));
+    }
+
+    private void checkBudget(List<String> violations, String endpoint, String percentile,
+                             double actual, long defaultBudget) {
+        long budget = Long.getLong("load.budget." + endpoint + "." + percentile,
+                Long.getLong("load.budget." + percentile, defaultBudget));
+        if (actual > budget) {
+            violations.add(String.format("%s %s=%.2fms > %dms", endpoint, percentile, actual, budget));
+        }
+    }
+
+    private HttpResponse<String> send(HttpRequest request) throws IOException, InterruptedException {
+        return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(uri(path)).GET().build();
+    }
+
+    private HttpRequest put(String path) {
+        return HttpRequest.newBuilder(uri(path)).PUT(HttpRequest.BodyPublishers.noBody()).build();
+    }
+
+    private HttpRequest post(String path, String ndjson) {
+        return HttpRequest.newBuilder(uri(path))
+                .header("Content-Type", "application/x-ndjson")
+                .POST(HttpRequest.BodyPublishers.ofString(ndjson))
+                .build();
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    private static int randomId(ThreadLocalRandom random, int bound) {
+        return 1 + random.nextInt(bound);
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+}
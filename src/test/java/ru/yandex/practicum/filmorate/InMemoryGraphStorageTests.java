@@ -0,0 +1,183 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.enums.FriendshipStatus;
+import ru.yandex.practicum.filmorate.exception.FilmNotFoundException;
+import ru.yandex.practicum.filmorate.exception.UserNotFoundException;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.dao.FriendshipDao;
+import ru.yandex.practicum.filmorate.storage.dao.LikesDao;
+import ru.yandex.practicum.filmorate.storage.impl.InMemoryFriendshipDao;
+import ru.yandex.practicum.filmorate.storage.impl.InMemoryLikesDao;
+import ru.yandex.practicum.filmorate.storage.index.IntSetMultimap;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static ru.yandex.practicum.filmorate.TestData.generateFilm;
+import static ru.yandex.practicum.filmorate.TestData.generateUser;
+
+@SpringBootTest(properties = {
+        "filmorate.likes.write-mode=in-memory",
+        "filmorate.friends.write-mode=in-memory"})
+@AutoConfigureTestDatabase
+@DirtiesContext
+class InMemoryGraphStorageTests {
+    @Autowired
+    private FilmService filmService;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private LikesDao likesDao;
+    @Autowired
+    private FriendshipDao friendshipDao;
+    @Autowired
+    private InMemoryLikesDao inMemoryLikesDao;
+    @Autowired
+    private InMemoryFriendshipDao inMemoryFriendshipDao;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void testLikesAreKeptInMemoryAndWrittenToDatabase() {
+        assertSame(inMemoryLikesDao, likesDao);
+        int firstFilmId = filmService.create(generateFilm("first")).getId();
+        int secondFilmId = filmService.create(generateFilm("second")).getId();
+        int firstUserId = userService.create(generateUser("first")).getId();
+        int secondUserId = userService.create(generateUser("second")).getId();
+        int storedBefore = count("likes");
+
+        filmService.addLike(firstUserId, secondFilmId);
+        filmService.addLike(secondUserId, secondFilmId);
+        filmService.addLike(secondUserId, secondFilmId);
+        filmService.addLike(firstUserId, firstFilmId);
+        filmService.deleteLike(firstUserId, firstFilmId);
+        filmService.deleteLike(firstUserId, firstFilmId);
+
+        assertEquals(2, likesDao.likesCount(secondFilmId));
+        assertEquals(0, likesDao.likesCount(firstFilmId));
+        assertEquals(secondFilmId, filmService.findTopFilms(10).iterator().next().getId());
+
+        inMemoryLikesDao.flush();
+        assertEquals(0, inMemoryLikesDao.pendingCount());
+        assertEquals(storedBefore + 2, count("likes"));
+        assertEquals(2, storedLikesCount(secondFilmId));
+        assertEquals(0, storedLikesCount(firstFilmId));
+        inMemoryLikesDao.load();
+        assertEquals(2, likesDao.likesCount(secondFilmId));
+        assertEquals(0, likesDao.likesCount(firstFilmId));
+
+        assertThrows(FilmNotFoundException.class, () -> filmService.addLike(firstUserId, 9999));
+        assertThrows(UserNotFoundException.class, () -> filmService.addLike(9999, firstFilmId));
+        assertThrows(UserNotFoundException.class, () -> filmService.deleteLike(9999, firstFilmId));
+    }
+
+    @Test
+    public void testFriendshipsAreKeptInMemoryAndWrittenToDatabase() {
+        assertSame(inMemoryFriendshipDao, friendshipDao);
+        int userId = userService.create(generateUser("user")).getId();
+        int friendId = userService.create(generateUser("friend")).getId();
+        int otherId = userService.create(generateUser("other")).getId();
+
+        userService.addFriend(userId, friendId);
+        userService.addFriend(userId, otherId);
+        userService.addFriend(otherId, userId);
+        userService.addFriend(friendId, otherId);
+
+        assertEquals(List.of(friendId, otherId), friendIds(userId));
+        assertEquals(List.of(otherId), friendIds(friendId));
+        assertFalse(inMemoryFriendshipDao.isConfirmed(userId, friendId));
+        assertTrue(inMemoryFriendshipDao.isConfirmed(userId, otherId));
+        assertEquals(List.of(otherId), userService.getCommonFriends(userId, friendId).stream()
+                .map(User::getId)
+                .collect(Collectors.toList()));
+        inMemoryFriendshipDao.flush();
+        assertEquals(FriendshipStatus.PENDING.getId(), storedStatus(userId, friendId));
+        assertEquals(FriendshipStatus.CONFIRMED.getId(), storedStatus(userId, otherId));
+        assertEquals(FriendshipStatus.CONFIRMED.getId(), storedStatus(otherId, userId));
+
+        userService.deleteFriend(userId, otherId);
+        assertEquals(List.of(friendId), friendIds(userId));
+        assertFalse(inMemoryFriendshipDao.isConfirmed(otherId, userId));
+        inMemoryFriendshipDao.flush();
+        assertEquals(0, inMemoryFriendshipDao.pendingCount());
+        assertNull(storedStatus(userId, otherId));
+        assertEquals(FriendshipStatus.PENDING.getId(), storedStatus(otherId, userId));
+        assertEquals(FriendshipStatus.PENDING.getId(), storedStatus(friendId, otherId));
+        inMemoryFriendshipDao.load();
+        assertEquals(List.of(friendId), friendIds(userId));
+        assertEquals(List.of(userId), friendIds(otherId));
+
+        assertThrows(UserNotFoundException.class, () -> friendshipDao.addFriend(userId, 9999));
+        assertThrows(UserNotFoundException.class, () -> friendshipDao.deleteFriend(9999, userId));
+    }
+
+    @Test
+    public void testIntSetMultimapMatchesBoxedModel() {
+        IntSetMultimap map = new IntSetMultimap(2);
+        Map<Integer, TreeSet<Integer>> model = new HashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 200_000; i++) {
+            int key = 1 + random.nextInt(500);
+            int value = random.nextInt(50);
+            if (random.nextInt(3) == 0) {
+                TreeSet<Integer> values = model.get(key);
+                boolean expected = values != null && values.remove(value);
+                if (values != null && values.isEmpty()) {
+                    model.remove(key);
+                }
+                assertEquals(expected, map.remove(key, value));
+            } else {
+                assertEquals(model.computeIfAbsent(key, id -> new TreeSet<>()).add(value), map.put(key, value));
+            }
+        }
+        assertEquals(model.size(), map.keyCount());
+        assertEquals(model.values().stream().mapToLong(TreeSet::size).sum(), map.valueCount());
+        for (int key = 1; key <= 500; key++) {
+            TreeSet<Integer> values = model.get(key);
+            int[] expected = values == null ? new int[0] : values.stream().mapToInt(Integer::intValue).toArray();
+            assertArrayEquals(expected, map.values(key));
+            assertEquals(values != null, map.containsKey(key));
+            assertEquals(expected.length, map.size(key));
+        }
+        assertThrows(IllegalArgumentException.class, () -> map.put(0, 1));
+    }
+
+    private List<Integer> friendIds(int userId) {
+        return userService.getFriendsList(userId).stream()
+                .map(User::getId)
+                .collect(Collectors.toList());
+    }
+
+    private int count(String table) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Integer.class);
+    }
+
+    private int storedLikesCount(int filmId) {
+        return jdbcTemplate.queryForObject("SELECT likes_count FROM films WHERE film_id = ?", Integer.class, filmId);
+    }
+
+    private Integer storedStatus(int userId, int friendId) {
+        List<Integer> statuses = jdbcTemplate.queryForList("SELECT friendship_status_id FROM user_friends " +
+                "WHERE user_id = ? AND friend_id = ?", Integer.class, userId, friendId);
+        return statuses.isEmpty() ? null : statuses.get(0);
+    }
+}
@@ -0,0 +1,140 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.enums.FriendshipStatus;
+import ru.yandex.practicum.filmorate.exception.FilmNotFoundException;
+import ru.yandex.practicum.filmorate.exception.UserNotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.dao.LikesDao;
+import ru.yandex.practicum.filmorate.storage.index.FilmPopularityIndex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static ru.yandex.practicum.filmorate.TestData.generateFilm;
+import static ru.yandex.practicum.filmorate.TestData.generateUser;
+
+class LikeAndFriendWritesTests extends SharedContextTests {
+    @Autowired
+    private FilmService filmService;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private LikesDao likesDao;
+    @Autowired
+    private FilmPopularityIndex popularityIndex;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void testLikeWritesMapMissingEntitiesToNotFound() {
+        int filmId = filmService.create(generateFilm("film")).getId();
+        int userId = userService.create(generateUser("liker")).getId();
+
+        filmService.addLike(userId, filmId);
+        filmService.addLike(userId, filmId);
+        assertEquals(1, likesDao.likesCount(filmId));
+
+        int missingFilmId = missingFilmId();
+        int missingUserId = missingUserId();
+        assertThrows(FilmNotFoundException.class, () -> filmService.addLike(userId, missingFilmId));
+        assertThrows(UserNotFoundException.class, () -> filmService.addLike(missingUserId, filmId));
+        assertThrows(FilmNotFoundException.class, () -> filmService.deleteLike(userId, missingFilmId));
+
+        filmService.deleteLike(userId, filmId);
+        assertEquals(0, likesDao.likesCount(filmId));
+    }
+
+    @Test
+    public void testFriendWritesMapMissingUsersToNotFound() {
+        int userId = userService.create(generateUser("user")).getId();
+        int friendId = userService.create(generateUser("friend")).getId();
+
+        userService.addFriend(userId, friendId);
+        userService.addFriend(userId, friendId);
+        assertEquals(1, userService.getFriendsList(userId).size());
+
+        int missingUserId = missingUserId();
+        assertThrows(UserNotFoundException.class, () -> userService.addFriend(userId, missingUserId));
+        assertThrows(UserNotFoundException.class, () -> userService.deleteFriend(missingUserId, friendId));
+    }
+
+    @Test
+    public void testReciprocatedRequestConfirmsBothRows() {
+        int userId = userService.create(generateUser("sender")).getId();
+        int friendId = userService.create(generateUser("receiver")).getId();
+
+        userService.addFriend(userId, friendId);
+        assertEquals(FriendshipStatus.PENDING.getId(), statusId(userId, friendId));
+        assertEquals(List.of(friendId), friendIds(userId, "pending"));
+        assertEquals(List.of(), friendIds(userId, "confirmed"));
+
+        userService.addFriend(friendId, userId);
+        assertEquals(FriendshipStatus.CONFIRMED.getId(), statusId(userId, friendId));
+        assertEquals(FriendshipStatus.CONFIRMED.getId(), statusId(friendId, userId));
+        assertEquals(List.of(friendId), friendIds(userId, "confirmed"));
+        assertEquals(List.of(userId), friendIds(friendId, "CONFIRMED"));
+
+        userService.deleteFriend(userId, friendId);
+        assertEquals(FriendshipStatus.PENDING.getId(), statusId(friendId, userId));
+        assertEquals(List.of(userId), friendIds(friendId, "pending"));
+        assertEquals(List.of(), friendIds(userId, "pending"));
+
+        assertThrows(ValidationException.class, () -> userService.getFriendsList(userId, "blocked"));
+    }
+
+    @Test
+    public void testFailedFilmCreateIsRolledBack() {
+        Film film = generateFilm("rolled back");
+        film.setGenres(new ArrayList<>(List.of(Genre.builder().id(1).build(), Genre.builder().id(999).build())));
+
+        assertThrows(DataIntegrityViolationException.class, () -> filmService.create(film));
+        // Id присваивается до вставки жанров, поэтому откат проверяется по самому фильму, а не по размеру каталога.
+        assertTrue(film.getId() > 0);
+        assertThrows(FilmNotFoundException.class, () -> filmService.findFilmById(film.getId()));
+        assertFalse(popularityIndex.findTopFilmIds(Integer.MAX_VALUE).contains(film.getId()));
+    }
+
+    @Test
+    public void testUpdateOfMissingEntityThrowsNotFound() {
+        Film film = generateFilm("film");
+        film.setId(missingFilmId());
+        assertThrows(FilmNotFoundException.class, () -> filmService.update(film));
+
+        User user = generateUser("missing");
+        user.setId(missingUserId());
+        assertThrows(UserNotFoundException.class, () -> userService.update(user));
+    }
+
+    private int missingFilmId() {
+        return jdbcTemplate.queryForObject("SELECT COALESCE(MAX(film_id), 0) + 1 FROM films", Integer.class);
+    }
+
+    private int missingUserId() {
+        return jdbcTemplate.queryForObject("SELECT COALESCE(MAX(user_id), 0) + 1 FROM users", Integer.class);
+    }
+
+    private int statusId(int userId, int friendId) {
+        return jdbcTemplate.queryForObject("SELECT friendship_status_id FROM user_friends " +
+                "WHERE user_id = ? AND friend_id = ?", Integer.class, userId, friendId);
+    }
+
+    private List<Integer> friendIds(int userId, String status) {
+        return userService.getFriendsList(userId, status).stream()
+                .map(User::getId)
+                .collect(Collectors.toList());
+    }
+}
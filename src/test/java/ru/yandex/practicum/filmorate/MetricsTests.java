@@ -0,0 +1,61 @@
+package ru.yandex.practicum.filmorate;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.service.FilmService;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static ru.yandex.practicum.filmorate.TestData.generateFilm;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@AutoConfigureMockMvc
+@AutoConfigureMetrics
+@DirtiesContext
+class MetricsTests {
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private FilmService filmService;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    public void testRequestsRecordStorageTimersAndStatementCounts() throws Exception {
+        int filmId = filmService.create(generateFilm("film")).getId();
+
+        mockMvc.perform(get("/films/" + filmId)).andExpect(status().isOk());
+        mockMvc.perform(get("/films/" + filmId)).andExpect(status().isOk());
+
+        assertEquals(2, meterRegistry.get("filmorate.storage")
+                .tag("class", "CachedFilmStorage")
+                .tag("method", "findFilmById")
+                .timer()
+                .count());
+        assertEquals(1, meterRegistry.get("filmorate.storage")
+                .tag("class", "FilmDbStorage")
+                .tag("method", "findFilmById")
+                .timer()
+                .count());
+        // Первый запрос читает фильм и жанры, второй берет фильм из кэша.
+        assertEquals(2, meterRegistry.get("filmorate.http.sql.statements")
+                .tag("uri", "/films/{id}")
+                .summary()
+                .totalAmount());
+
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("filmorate_http_sql_statements")));
+    }
+}
@@ -0,0 +1,158 @@
+package ru.yandex.practicum.filmorate;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import reactor.core.publisher.Flux;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.reactive.ReactiveFilmStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:reactive;DB_CLOSE_DELAY=-1")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@AutoConfigureMockMvc
+@ActiveProfiles("reactive")
+@DirtiesContext
+class ReactiveFilmApiTests {
+    private static final int FILMS_COUNT = 12;
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private FilmService filmService;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private ReactiveFilmStorage reactiveFilmStorage;
+
+    private static final List<Integer> filmIds = new ArrayList<>();
+
+    @BeforeEach
+    public void fillFilms() {
+        if (!filmIds.isEmpty()) {
+            return;
+        }
+        int userId = userService.create(User.builder()
+                .login("user")
+                .email("user@email.ru")
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build()).getId();
+        for (int i = 0; i < FILMS_COUNT; i++) {
+            int filmId = filmService.create(generateFilm(i)).getId();
+            filmIds.add(filmId);
+            if (i % 3 == 0) {
+                filmService.addLike(userId, filmId);
+            }
+        }
+    }
+
+    @Test
+    public void testReactiveEndpointsMatchJdbcEndpoints() throws Exception {
+        assertEquals(jdbc("/films"), reactive("/reactive/films", MediaType.APPLICATION_JSON));
+        assertEquals(jdbc("/films/" + filmIds.get(4)), reactive("/reactive/films/" + filmIds.get(4),
+                MediaType.APPLICATION_JSON));
+        assertEquals(jdbc("/films/popular?count=5"), reactive("/reactive/films/popular?count=5",
+                MediaType.APPLICATION_JSON));
+    }
+
+    @Test
+    public void testListingStreamsAsNdjson() throws Exception {
+        String ndjson = mockMvc.perform(asyncDispatch(startAsync("/reactive/films", MediaType.APPLICATION_NDJSON)))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        List<JsonNode> films = new ArrayList<>();
+        for (String line : ndjson.split("\n")) {
+            films.add(objectMapper.readTree(line));
+        }
+        assertEquals(FILMS_COUNT, films.size());
+        assertEquals(jdbc("/films").get(0), films.get(0));
+    }
+
+    @Test
+    public void testTopFilmsAreReadFromIndexOnSubscribe() {
+        Flux<Film> top = reactiveFilmStorage.findTopFilms(1);
+        // У остальных фильмов не больше одного лайка, два лайка выводят этот фильм в топ.
+        int filmId = filmIds.get(1);
+        for (String login : List.of("first", "second")) {
+            int userId = userService.create(User.builder()
+                    .login(login)
+                    .email(login + "@email.ru")
+                    .birthday(LocalDate.of(1990, 1, 1))
+                    .build()).getId();
+            filmService.addLike(userId, filmId);
+        }
+
+        assertEquals(filmId, top.blockFirst().getId());
+    }
+
+    @Test
+    public void testMissingFilmIsNotFound() throws Exception {
+        mockMvc.perform(asyncDispatch(startAsync("/reactive/films/9999", MediaType.APPLICATION_JSON)))
+                .andExpect(status().isNotFound());
+    }
+
+    private JsonNode jdbc(String path) throws Exception {
+        return objectMapper.readTree(mockMvc.perform(get(path))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString());
+    }
+
+    private JsonNode reactive(String path, MediaType mediaType) throws Exception {
+        return objectMapper.readTree(mockMvc.perform(asyncDispatch(startAsync(path, mediaType)))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString());
+    }
+
+    private MvcResult startAsync(String path, MediaType mediaType) throws Exception {
+        return mockMvc.perform(get(path).accept(mediaType))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+    }
+
+    private Film generateFilm(int i) {
+        List<Genre> genres = new ArrayList<>();
+        genres.add(Genre.builder().id(i % 6 + 1).build());
+        genres.add(Genre.builder().id((i + 3) % 6 + 1).build());
+        return Film.builder()
+                .name("film" + i)
+                .description("description" + i)
+                .duration(90 + i)
+                .releaseDate(LocalDate.of(2000, 1, 1).plusDays(i))
+                .mpa(Mpa.builder().id(i % 5 + 1).build())
+                .genres(genres)
+                .build();
+    }
+}
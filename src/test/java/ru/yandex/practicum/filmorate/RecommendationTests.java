@@ -0,0 +1,119 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.exception.UserNotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.index.LikeMatrix;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static ru.yandex.practicum.filmorate.TestData.generateFilm;
+import static ru.yandex.practicum.filmorate.TestData.generateUser;
+
+class RecommendationTests extends SharedContextTests {
+    @Autowired
+    private FilmService filmService;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private LikeMatrix likeMatrix;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void testRecommendationsFollowOverlappingLikes() {
+        int[] films = createFilms(6);
+        int[] users = createUsers("user", 4);
+
+        like(users[0], films[0], films[1], films[2]);
+        like(users[1], films[0], films[1], films[3]);
+        like(users[2], films[2], films[4]);
+        like(users[3], films[5]);
+
+        assertEquals(List.of(films[3], films[4]), recommendedIds(users[0], 10));
+        assertEquals(List.of(films[3]), recommendedIds(users[0], 1));
+
+        // Новый общий лайк делает users[3] соседом и сбрасывает закэшированную подборку.
+        filmService.addLike(users[3], films[1]);
+        assertEquals(List.of(films[3], films[4], films[5]), recommendedIds(users[0], 10));
+
+        filmService.addLike(users[0], films[3]);
+        assertEquals(List.of(films[4], films[5]), recommendedIds(users[0], 10));
+
+        filmService.deleteLike(users[0], films[3]);
+        assertEquals(List.of(films[3], films[4], films[5]), recommendedIds(users[0], 10));
+
+        // Сосед снимает лайк с фильма вне набора users[0]: подборка сбрасывается, не дожидаясь срока жизни.
+        filmService.deleteLike(users[1], films[3]);
+        assertEquals(List.of(films[4], films[5]), recommendedIds(users[0], 10));
+        filmService.addLike(users[1], films[3]);
+        assertEquals(List.of(films[3], films[4], films[5]), recommendedIds(users[0], 10));
+
+        likeMatrix.rebuild();
+        assertEquals(List.of(films[3], films[4], films[5]), recommendedIds(users[0], 10));
+
+        int lonely = userService.create(generateUser("lonely")).getId();
+        assertTrue(userService.getRecommendations(lonely, 10).isEmpty());
+        int missingUserId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(user_id), 0) + 1 FROM users",
+                Integer.class);
+        assertThrows(UserNotFoundException.class, () -> userService.getRecommendations(missingUserId, 10));
+    }
+
+    @Test
+    public void testRecommendationsForManyLikesMatchSequentialOrder() {
+        int[] films = createFilms(72);
+        int[] users = createUsers("heavy", 3);
+
+        for (int i = 0; i < 70; i++) {
+            filmService.addLike(users[0], films[i]);
+        }
+        for (int i = 0; i < 40; i++) {
+            filmService.addLike(users[1], films[i]);
+        }
+        for (int i = 60; i < 70; i++) {
+            filmService.addLike(users[2], films[i]);
+        }
+        like(users[1], films[70]);
+        like(users[2], films[71]);
+
+        assertEquals(List.of(films[70], films[71]), recommendedIds(users[0], 10));
+    }
+
+    private void like(int userId, int... filmIds) {
+        for (int filmId : filmIds) {
+            filmService.addLike(userId, filmId);
+        }
+    }
+
+    private List<Integer> recommendedIds(int userId, int count) {
+        Collection<Film> films = userService.getRecommendations(userId, count);
+        return films.stream()
+                .map(Film::getId)
+                .collect(Collectors.toList());
+    }
+
+    private int[] createFilms(int count) {
+        int[] films = new int[count];
+        for (int i = 0; i < count; i++) {
+            films[i] = filmService.create(generateFilm("film" + i)).getId();
+        }
+        return films;
+    }
+
+    private int[] createUsers(String prefix, int count) {
+        int[] users = new int[count];
+        for (int i = 0; i < count; i++) {
+            users[i] = userService.create(generateUser(prefix + i)).getId();
+        }
+        return users;
+    }
+}
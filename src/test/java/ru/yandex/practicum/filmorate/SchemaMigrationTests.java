@@ -0,0 +1,102 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.index.FilmPopularityIndex;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static ru.yandex.practicum.filmorate.TestData.generateFilm;
+import static ru.yandex.practicum.filmorate.TestData.generateUser;
+
+class SchemaMigrationTests extends SharedContextTests {
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private FilmService filmService;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private FilmPopularityIndex popularityIndex;
+
+    @Test
+    public void testAllMigrationsAreApplied() {
+        List<String> versions = jdbcTemplate.queryForList(
+                "SELECT \"version\" FROM \"flyway_schema_history\" WHERE \"type\" IN ('SQL', 'JDBC') " +
+                        "AND \"success\" " +
+                        "ORDER BY \"installed_rank\"",
+                String.class);
+
+        assertEquals(List.of("1", "2", "3", "4", "5"), versions);
+        assertEquals(6, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM genres", Integer.class));
+        assertEquals(5, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM mpa", Integer.class));
+    }
+
+    @Test
+    public void testHotQueriesUseIndexes() {
+        // После V5 у этих столбцов нет других индексов, кроме созданных в V2.
+        assertUsesIndex("SELECT COUNT(*) FROM likes WHERE film_id = ?", "LIKES_FILM_ID_IDX", "FILM_ID = ?1");
+        assertUsesIndex("SELECT user_id FROM user_friends WHERE friend_id = ?", "USER_FRIENDS_FRIEND_ID_IDX",
+                "FRIEND_ID = ?1");
+        assertUsesIndex("SELECT 1 FROM user_friends WHERE user_id = ? AND friend_id = ?",
+                "USER_ID = ?1 AND FRIEND_ID = ?2");
+        assertUsesIndex("SELECT film_id, genre_id FROM film_genres WHERE film_id = ?", "FILM_ID = ?1");
+        assertUsesIndex("SELECT u.* FROM users u JOIN user_friends AS uf ON u.user_id = uf.friend_id " +
+                "AND uf.user_id = ?", "USER_ID = ?1");
+    }
+
+    @Test
+    public void testLikesCountFollowsLikes() {
+        int filmId = filmService.create(generateFilm("film")).getId();
+        int firstUserId = userService.create(generateUser("first")).getId();
+        int secondUserId = userService.create(generateUser("second")).getId();
+
+        filmService.addLike(firstUserId, filmId);
+        filmService.addLike(secondUserId, filmId);
+        filmService.addLike(secondUserId, filmId);
+        assertEquals(2, likesCountColumn(filmId));
+
+        filmService.deleteLike(firstUserId, filmId);
+        assertEquals(1, likesCountColumn(filmId));
+        assertFalse(popularityIndex.findInconsistentFilmIds().contains(filmId));
+
+        popularityIndex.rebuild();
+        assertEquals(1, popularityIndex.likesCount(filmId));
+    }
+
+    private void assertUsesIndex(String sql, String indexCondition) {
+        assertPlan(sql, "\\w+", indexCondition);
+    }
+
+    private void assertUsesIndex(String sql, String indexName, String indexCondition) {
+        assertPlan(sql, Pattern.quote(indexName), indexCondition);
+    }
+
+    private void assertPlan(String sql, String indexPattern, String indexCondition) {
+        // H2 пишет условие поиска по индексу в комментарий плана: /* PUBLIC.<индекс>: <условие> */
+        String plan = jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class, planArguments(sql))
+                .replaceAll("\\s+", " ");
+
+        assertTrue(plan.matches(".*/\\* PUBLIC\\." + indexPattern + ": " + Pattern.quote(indexCondition) + " \\*/.*"),
+                plan);
+        assertFalse(plan.contains("tableScan"), plan);
+    }
+
+    private Object[] planArguments(String sql) {
+        return sql.chars()
+                .filter(c -> c == '?')
+                .mapToObj(c -> (Object) 1)
+                .toArray();
+    }
+
+    private int likesCountColumn(int filmId) {
+        return jdbcTemplate.queryForObject("SELECT likes_count FROM films WHERE film_id = ?", Integer.class, filmId);
+    }
+}
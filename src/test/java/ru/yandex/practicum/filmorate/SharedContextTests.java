@@ -0,0 +1,14 @@
+package ru.yandex.practicum.filmorate;
+
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+
+// Один контекст и одна база на всех наследников. Наследникам не нужна пустая база: каждый тест создает
+// свои фильмы и пользователей и не рассчитывает на конкретные id или размер каталога.
+// Из-за MockMvc ключ контекста отличается от FilmorateApplicationTests, и тот по-прежнему получает чистую базу.
+@SpringBootTest
+@AutoConfigureTestDatabase
+@AutoConfigureMockMvc
+abstract class SharedContextTests {
+}
@@ -0,0 +1,134 @@
+package ru.yandex.practicum.filmorate;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import ru.yandex.practicum.filmorate.metrics.SqlMetricsConfiguration;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static ru.yandex.practicum.filmorate.TestData.generateFilm;
+import static ru.yandex.practicum.filmorate.TestData.generateUser;
+
+@SpringBootTest(properties = "filmorate.sql.slow-query-threshold=0ms")
+@AutoConfigureTestDatabase
+@AutoConfigureMockMvc
+@DirtiesContext
+@ExtendWith(OutputCaptureExtension.class)
+class SqlQueryBudgetTests {
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private FilmService filmService;
+    @Autowired
+    private UserService userService;
+
+    private int filmId;
+    private int userId;
+    private int friendId;
+
+    @BeforeEach
+    public void fillData() {
+        filmId = filmService.create(generateFilm("film")).getId();
+        userId = userService.create(generateUser("user")).getId();
+        friendId = userService.create(generateUser("friend")).getId();
+        userService.addFriend(userId, friendId);
+        userService.addFriend(friendId, userId);
+        filmService.addLike(userId, filmId);
+    }
+
+    @Test
+    public void testEndpointsStayWithinQueryBudget() throws Exception {
+        // Рост бюджета означает новый N+1. Запросы выполняются по порядку на общих кэшах, поэтому бюджеты
+        // зависят от этого порядка: GET /films и GET /users загружают все фильмы и всех пользователей в кэши
+        // сущностей, и следующие за ними запросы (популярные, друзья, общие и предложенные друзья, рекомендации)
+        // читают уже теплый кэш. Справочники MPA и жанров загружаются при старте. Перестановка записей или
+        // удаление первых списков меняет бюджеты.
+        Map<RequestBuilder, Integer> budgets = new LinkedHashMap<>();
+        budgets.put(get("/films"), 2);
+        budgets.put(get("/films/{id}", filmId), 2);
+        budgets.put(get("/films/popular?count=10"), 0);
+        budgets.put(get("/films/popular?count=10&genreId=1&year=2001"), 0);
+        budgets.put(put("/films/{id}/like/{userId}", filmId, friendId), 2);
+        budgets.put(delete("/films/{id}/like/{userId}", filmId, friendId), 2);
+        budgets.put(get("/users"), 1);
+        budgets.put(get("/users/{id}", userId), 1);
+        budgets.put(get("/users/{id}/friends", userId), 1);
+        budgets.put(get("/users/{id}/friends", userId).param("status", "confirmed"), 1);
+        budgets.put(get("/users/{id}/friends/common/{otherId}", userId, friendId), 0);
+        budgets.put(get("/users/{id}/friends/suggested", userId), 0);
+        budgets.put(get("/users/{id}/recommendations", userId), 1);
+        budgets.put(get("/genres"), 0);
+        budgets.put(get("/mpa/{id}", 1), 0);
+
+        for (Map.Entry<RequestBuilder, Integer> budget : budgets.entrySet()) {
+            String header = mockMvc.perform(budget.getKey())
+                    .andExpect(status().is2xxSuccessful())
+                    .andReturn()
+                    .getResponse()
+                    .getHeader(SqlMetricsConfiguration.STATEMENTS_HEADER);
+            MockHttpServletRequest request = budget.getKey().buildRequest(null);
+            String endpoint = request.getMethod() + " " + request.getRequestURI();
+            assertTrue(header != null && Integer.parseInt(header) <= budget.getValue(),
+                    endpoint + " issued " + header + " statements, budget " + budget.getValue());
+        }
+    }
+
+    @Test
+    public void testStreamingExportStatementsAreCounted() throws Exception {
+        // Выгрузка пишет ответ в потоке асинхронной обработки, запросы к базе идут там же.
+        for (String uri : new String[]{"/films/export", "/users/export"}) {
+            MvcResult result = mockMvc.perform(get(uri))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+            result.getAsyncResult();
+            mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk());
+
+            String header = result.getResponse().getHeader(SqlMetricsConfiguration.STATEMENTS_HEADER);
+            assertTrue(header != null && Integer.parseInt(header) >= 1, uri + " header " + header);
+            DistributionSummary statements = meterRegistry.get("filmorate.http.sql.statements")
+                    .tag("uri", uri)
+                    .summary();
+            assertEquals(1, statements.count());
+            assertTrue(statements.totalAmount() >= 1, uri + " recorded " + statements.totalAmount());
+        }
+    }
+
+    @Test
+    public void testSlowQueryIsLoggedWithBindParameters(CapturedOutput output) throws Exception {
+        String body = "{\"id\":" + userId + ",\"login\":\"renamed\",\"email\":\"renamed@email.ru\","
+                + "\"birthday\":\"1990-01-01\"}";
+        mockMvc.perform(put("/users").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isOk());
+
+        assertTrue(output.getOut().contains("UPDATE users SET email = ?"));
+        assertTrue(output.getOut().contains("renamed@email.ru, renamed"));
+    }
+}
@@ -0,0 +1,35 @@
+package ru.yandex.practicum.filmorate;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+
+// Фабрики корректных фильмов и пользователей для тестов; нужные тесту поля меняются сеттерами.
+final class TestData {
+    private TestData() {
+    }
+
+    static Film generateFilm(String name) {
+        return generateFilm(name, "description");
+    }
+
+    static Film generateFilm(String name, String description) {
+        return Film.builder()
+                .name(name)
+                .description(description)
+                .duration(90)
+                .releaseDate(LocalDate.of(2001, 1, 1))
+                .mpa(Mpa.builder().id(1).build())
+                .build();
+    }
+
+    static User generateUser(String login) {
+        return User.builder()
+                .login(login)
+                .email(login + "@email.ru")
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build();
+    }
+}
@@ -0,0 +1,33 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+// Тот же прогон в режиме виртуальных потоков; сравнение: target/load-report.txt и load-report-virtual.txt.
+// Профиль virtual меняет только filmorate.threads.mode, пулы Hikari и Tomcat те же, что в HttpLoadTests.
+// mvn -Pload test -Dload.clients=1000
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"logging.level.ru.yandex.practicum.filmorate=WARN",
+                "spring.datasource.url=jdbc:h2:mem:load-virtual;DB_CLOSE_DELAY=-1"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("virtual")
+@DirtiesContext
+class VirtualThreadLoadTests extends HttpLoadTests {
+    // На JDK до 21 конфигурация откатывается на пул Tomcat, и прогон повторил бы HttpLoadTests.
+    @BeforeAll
+    static void requireVirtualThreads() {
+        assumeTrue(Runtime.version().feature() >= 21, "Виртуальные потоки доступны с Java 21");
+    }
+
+    @Override
+    protected String reportName() {
+        return "load-report-virtual";
+    }
+}
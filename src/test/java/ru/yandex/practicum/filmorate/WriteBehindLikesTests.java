@@ -0,0 +1,114 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.exception.FilmNotFoundException;
+import ru.yandex.practicum.filmorate.exception.UserNotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.dao.LikesDao;
+import ru.yandex.practicum.filmorate.storage.impl.WriteBehindLikesDao;
+import ru.yandex.practicum.filmorate.storage.index.FilmPopularityIndex;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static ru.yandex.practicum.filmorate.TestData.generateFilm;
+import static ru.yandex.practicum.filmorate.TestData.generateUser;
+
+@SpringBootTest(properties = {
+        "filmorate.likes.write-mode=write-behind",
+        "filmorate.likes.write-behind.batch-size=1000",
+        "filmorate.likes.write-behind.flush-interval=1h"})
+@AutoConfigureTestDatabase
+@DirtiesContext
+class WriteBehindLikesTests {
+    @Autowired
+    private FilmService filmService;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private LikesDao likesDao;
+    @Autowired
+    private WriteBehindLikesDao writeBehindLikesDao;
+    @Autowired
+    private FilmPopularityIndex popularityIndex;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void testPendingLikesAreVisibleAndFlushedInBatch() {
+        assertSame(writeBehindLikesDao, likesDao);
+        int firstFilmId = filmService.create(generateFilm("first")).getId();
+        int secondFilmId = filmService.create(generateFilm("second")).getId();
+        int firstUserId = userService.create(generateUser("first")).getId();
+        int secondUserId = userService.create(generateUser("second")).getId();
+        int storedBefore = storedLikes();
+
+        filmService.addLike(firstUserId, secondFilmId);
+        filmService.addLike(secondUserId, secondFilmId);
+        filmService.addLike(secondUserId, secondFilmId);
+        filmService.addLike(firstUserId, firstFilmId);
+        filmService.deleteLike(firstUserId, firstFilmId);
+
+        assertEquals(2, likesDao.likesCount(secondFilmId));
+        assertEquals(0, likesDao.likesCount(firstFilmId));
+        assertEquals(secondFilmId, topFilmIds().get(0));
+        assertEquals(storedBefore, storedLikes());
+
+        writeBehindLikesDao.flush();
+
+        assertEquals(0, writeBehindLikesDao.pendingCount());
+        assertEquals(storedBefore + 2, storedLikes());
+        assertTrue(popularityIndex.findInconsistentFilmIds().isEmpty());
+
+        filmService.deleteLike(secondUserId, secondFilmId);
+        assertEquals(1, likesDao.likesCount(secondFilmId));
+        writeBehindLikesDao.flush();
+        assertEquals(storedBefore + 1, storedLikes());
+        assertTrue(popularityIndex.findInconsistentFilmIds().isEmpty());
+    }
+
+    @Test
+    public void testMissingTargetsAreRejectedBeforeQueueing() {
+        int filmId = filmService.create(generateFilm("film")).getId();
+        int userId = userService.create(generateUser("user")).getId();
+
+        assertThrows(FilmNotFoundException.class, () -> filmService.addLike(userId, 9999));
+        assertThrows(UserNotFoundException.class, () -> filmService.addLike(9999, filmId));
+        assertThrows(UserNotFoundException.class, () -> filmService.deleteLike(9999, filmId));
+    }
+
+    @Test
+    public void testDrainWritesPendingLikes() throws InterruptedException {
+        int filmId = filmService.create(generateFilm("drained")).getId();
+        int userId = userService.create(generateUser("drained")).getId();
+        filmService.addLike(userId, filmId);
+        int storedBefore = storedLikes();
+
+        writeBehindLikesDao.drain();
+
+        assertEquals(storedBefore + 1, storedLikes());
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT likes_count FROM films WHERE film_id = ?",
+                Integer.class, filmId));
+    }
+
+    private int storedLikes() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM likes", Integer.class);
+    }
+
+    private List<Integer> topFilmIds() {
+        return filmService.findTopFilms(10).stream()
+                .map(Film::getId)
+                .collect(Collectors.toList());
+    }
+}